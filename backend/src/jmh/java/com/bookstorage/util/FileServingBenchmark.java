@@ -0,0 +1,165 @@
+package com.bookstorage.util;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.UrlResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serving a file through FileServingUtil against the UrlResource response it replaced, into a response that
+ * discards what it is sent. The "bytes" counter is the throughput in bytes per second; run with -prof gc and
+ * divide gc.alloc.rate.norm by the file size for the heap allocated per byte served (times 2^30 per GB).
+ * The sendfile case only hands the region to the connector, so it shows what the handler itself costs.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FileServingBenchmark {
+
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+
+    @Param({"1048576", "67108864"})
+    public int size;
+
+    private Path file;
+
+    @Setup
+    public void createFile() throws IOException {
+        byte[] content = new byte[size];
+        new Random(42).nextBytes(content);
+        file = Files.createTempFile("file-serving-benchmark", ".pdf");
+        Files.write(file, content);
+    }
+
+    @TearDown
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Served {
+
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    /**
+     * Before: a UrlResource written by ResourceHttpMessageConverter, i.e. InputStream.transferTo the response.
+     */
+    @Benchmark
+    public void urlResource(Served served) throws IOException {
+        DiscardingResponse response = new DiscardingResponse();
+        try (InputStream in = new UrlResource(file.toUri()).getInputStream()) {
+            in.transferTo(response.getOutputStream());
+        }
+        served.bytes += response.sent();
+    }
+
+    @Benchmark
+    public void fullFile(Served served) throws IOException {
+        served.bytes += serve(get(), null);
+    }
+
+    @Benchmark
+    public void singleRange(Served served) throws IOException {
+        served.bytes += serve(get(), "bytes=" + size / 4 + "-" + (size / 4 * 3 - 1));
+    }
+
+    @Benchmark
+    public void multipartRanges(Served served) throws IOException {
+        served.bytes += serve(get(), "bytes=0-" + (size / 4 - 1) + "," + size / 2 + "-" + (size / 4 * 3 - 1));
+    }
+
+    @Benchmark
+    public void sendfileHandOff(Served served) throws IOException {
+        MockHttpServletRequest request = get();
+        request.setAttribute(SENDFILE_SUPPORTED, Boolean.TRUE);
+        serve(request, null);
+        served.bytes += size;
+    }
+
+    private long serve(MockHttpServletRequest request, String range) throws IOException {
+        if (range != null) {
+            request.addHeader(HttpHeaders.RANGE, range);
+        }
+        DiscardingResponse response = new DiscardingResponse();
+        FileServingUtil.serve(file, "application/pdf", "book.pdf", request, response);
+        return response.sent();
+    }
+
+    private static MockHttpServletRequest get() {
+        return new MockHttpServletRequest("GET", "/files/books/book.pdf");
+    }
+
+    /**
+     * A response whose body goes nowhere, so the benchmark measures the serving path and not a buffer.
+     */
+    private static class DiscardingResponse extends MockHttpServletResponse {
+
+        private final CountingOutputStream out = new CountingOutputStream();
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return out;
+        }
+
+        long sent() {
+            return out.count;
+        }
+    }
+
+    private static class CountingOutputStream extends ServletOutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.bookstorage.config;
+
+import com.bookstorage.security.AuthRateLimiter;
+import com.bookstorage.util.RequestUtil;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+@Component
+public class AuthRateLimitInterceptor implements HandlerInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthRateLimitInterceptor.class);
+
+    @Autowired
+    private AuthRateLimiter authRateLimiter;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if ("OPTIONS".equalsIgnoreCase(request.getMethod())) {
+            return true;
+        }
+
+        String remoteAddr = RequestUtil.getClientIpAddress(request);
+        long retryAfter = authRateLimiter.acquireForIp(remoteAddr);
+        if (retryAfter > 0) {
+            logger.warn("🚫 Auth rate limit exceeded - URI: {} | IP: {}", request.getRequestURI(), remoteAddr);
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+            return false;
+        }
+
+        return true;
+    }
+}
@@ -20,5 +20,6 @@ public class DataInitializer implements CommandLineRunner {
         logger.info("Starting data initialization...");
         userService.initializeDefaultAdmin();
         logger.info("✅ Default admin user initialized successfully!");
+        userService.reconcileBooksCounts();
     }
 }
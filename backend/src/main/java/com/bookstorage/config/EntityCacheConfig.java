@@ -0,0 +1,36 @@
+package com.bookstorage.config;
+
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+
+/**
+ * Creates the Caffeine cache manager behind Hibernate's second-level cache and hands it to Hibernate.
+ * Given a config URI, Hibernate resolves it to a URL itself, which fails for classpath: outside the
+ * packaged jar and loses the file inside it otherwise; Caffeine reads classpath: resources directly,
+ * the same way under spring-boot:run, in tests and in the jar.
+ */
+@Configuration
+public class EntityCacheConfig {
+
+    @Value("${entity-cache.config:classpath:cache/hibernate-caffeine.conf}")
+    private String cacheConfig;
+
+    @Bean(destroyMethod = "close")
+    public CacheManager entityCacheManager() {
+        return Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create(cacheConfig), getClass().getClassLoader());
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer entityCacheManagerCustomizer(CacheManager entityCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, entityCacheManager);
+    }
+}
@@ -0,0 +1,39 @@
+package com.bookstorage.config;
+
+import com.bookstorage.service.FileMetadataIndex;
+import com.bookstorage.service.FileStorageService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Clears out uploads interrupted by the last shutdown and scans the upload directory into the file
+ * metadata index at startup. If the scan fails, files are described from disk on their first request instead.
+ */
+@Component
+public class FileIndexInitializer implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileIndexInitializer.class);
+
+    @Autowired
+    private FileMetadataIndex fileMetadataIndex;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Override
+    public void run(String... args) {
+        try {
+            fileStorageService.purgeIncoming();
+        } catch (Exception e) {
+            logger.warn("Abandoned uploads could not be removed - {}", e.getMessage());
+        }
+        try {
+            fileMetadataIndex.rebuild();
+        } catch (Exception e) {
+            logger.warn("File metadata index could not be built - {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.bookstorage.config;
+
+import com.bookstorage.repository.BookSearchRepository;
+import com.bookstorage.service.BookService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+
+/**
+ * Prepares the configured search engine once the schema is up to date: either applies the PostgreSQL
+ * search migration (pg_trgm, search_vector and their GIN indexes) or builds the in-memory index.
+ * If that fails, book search stays on the plain LIKE queries. The typeahead index is always built.
+ */
+@Component
+@Order(0)
+public class SearchInitializer implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchInitializer.class);
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private BookSearchRepository bookSearchRepository;
+
+    @Autowired
+    private BookService bookService;
+
+    @Value("${search.engine:postgres}")
+    private String searchEngine;
+
+    @Override
+    public void run(String... args) {
+        try {
+            bookService.rebuildSuggestionIndex();
+        } catch (Exception e) {
+            logger.warn("Suggestion index could not be built - {}", e.getMessage());
+        }
+
+        if ("memory".equalsIgnoreCase(searchEngine)) {
+            try {
+                bookService.rebuildSearchIndex();
+            } catch (Exception e) {
+                logger.warn("In-memory search index could not be built, falling back to LIKE search - {}", e.getMessage());
+            }
+            return;
+        }
+
+        if (!"postgres".equalsIgnoreCase(searchEngine)) {
+            logger.info("Indexed search disabled (search.engine={})", searchEngine);
+            return;
+        }
+
+        try {
+            new ResourceDatabasePopulator(new ClassPathResource("db/search-postgresql.sql")).execute(dataSource);
+            bookSearchRepository.setEnabled(true);
+            logger.info("🔎 PostgreSQL full-text and trigram search enabled");
+        } catch (Exception e) {
+            logger.warn("PostgreSQL search migration could not be applied, falling back to LIKE search - {}", e.getMessage());
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.bookstorage.config;
 
+import com.bookstorage.util.RequestUtil;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
@@ -20,7 +21,7 @@ public class SwaggerAccessInterceptor implements HandlerInterceptor {
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
         String requestURI = request.getRequestURI();
         String userAgent = request.getHeader("User-Agent");
-        String remoteAddr = getClientIpAddress(request);
+        String remoteAddr = RequestUtil.getClientIpAddress(request);
         String timestamp = LocalDateTime.now().format(formatter);
 
         // Log Swagger UI access
@@ -31,18 +32,4 @@ public class SwaggerAccessInterceptor implements HandlerInterceptor {
 
         return true;
     }
-
-    private String getClientIpAddress(HttpServletRequest request) {
-        String xForwardedFor = request.getHeader("X-Forwarded-For");
-        if (xForwardedFor != null && !xForwardedFor.isEmpty() && !"unknown".equalsIgnoreCase(xForwardedFor)) {
-            return xForwardedFor.split(",")[0];
-        }
-        
-        String xRealIp = request.getHeader("X-Real-IP");
-        if (xRealIp != null && !xRealIp.isEmpty() && !"unknown".equalsIgnoreCase(xRealIp)) {
-            return xRealIp;
-        }
-        
-        return request.getRemoteAddr();
-    }
 }
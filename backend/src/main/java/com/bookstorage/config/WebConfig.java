@@ -11,9 +11,14 @@ public class WebConfig implements WebMvcConfigurer {
     @Autowired
     private SwaggerAccessInterceptor swaggerAccessInterceptor;
 
+    @Autowired
+    private AuthRateLimitInterceptor authRateLimitInterceptor;
+
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
         registry.addInterceptor(swaggerAccessInterceptor)
                 .addPathPatterns("/swagger-ui/**", "/api-docs/**", "/swagger-ui.html");
+        registry.addInterceptor(authRateLimitInterceptor)
+                .addPathPatterns("/auth/**");
     }
 }
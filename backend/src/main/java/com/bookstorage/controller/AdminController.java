@@ -1,10 +1,24 @@
 package com.bookstorage.controller;
 
+import com.bookstorage.config.EntityCacheMetrics;
 import com.bookstorage.dto.BookDto;
+import com.bookstorage.dto.CountMode;
 import com.bookstorage.dto.UserDto;
 import com.bookstorage.entity.UserRole;
 import com.bookstorage.entity.UserStatus;
+import com.bookstorage.search.BookSearchIndex;
+import com.bookstorage.security.AuthRateLimiter;
+import com.bookstorage.security.BoundedPasswordEncoder;
+import com.bookstorage.security.PasswordHashingBusyException;
+import com.bookstorage.security.UserDetailsCache;
+import com.bookstorage.service.BlobMigrationService;
 import com.bookstorage.service.BookService;
+import com.bookstorage.service.FileMetadataIndex;
+import com.bookstorage.service.FileStorageService;
+import com.bookstorage.service.FirstPageCache;
+import com.bookstorage.service.HotFileCache;
+import com.bookstorage.service.UploadLayoutMigrator;
+import com.bookstorage.service.UploadSessionService;
 import com.bookstorage.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -13,10 +27,18 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/admin")
@@ -32,21 +54,59 @@ public class AdminController {
     @Autowired
     private BookService bookService;
 
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+
+    @Autowired
+    private BoundedPasswordEncoder passwordEncoder;
+
+    @Autowired
+    private AuthRateLimiter authRateLimiter;
+
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+
+    @Autowired
+    private EntityCacheMetrics entityCacheMetrics;
+
+    @Autowired
+    private FirstPageCache firstPageCache;
+
+    @Autowired
+    private FileMetadataIndex fileMetadataIndex;
+
+    @Autowired
+    private HotFileCache hotFileCache;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private BlobMigrationService blobMigrationService;
+
+    @Autowired
+    private UploadLayoutMigrator uploadLayoutMigrator;
+
+    @Autowired
+    private UploadSessionService uploadSessionService;
+
     @GetMapping("/users")
-    @Operation(summary = "Get all users", description = "Get all users with filtering and pagination")
-    public ResponseEntity<Page<UserDto>> getAllUsers(@RequestParam(required = false) String fullName,
+    @Operation(summary = "Get all users", description = "Get all users with filtering and pagination. " +
+            "count=APPROXIMATE reports a planner estimate as the total, count=NONE returns a slice without a total")
+    public ResponseEntity<Slice<UserDto>> getAllUsers(@RequestParam(required = false) String fullName,
                                                    @RequestParam(required = false) String username,
                                                    @RequestParam(required = false) UserRole role,
                                                    @RequestParam(required = false) UserStatus status,
                                                    @RequestParam(defaultValue = "0") int page,
                                                    @RequestParam(defaultValue = "10") int size,
                                                    @RequestParam(defaultValue = "createdAt") String sortBy,
-                                                   @RequestParam(defaultValue = "desc") String sortDir) {
+                                                   @RequestParam(defaultValue = "desc") String sortDir,
+                                                   @RequestParam(defaultValue = "EXACT") CountMode count) {
         try {
             Sort sort = Sort.by(Sort.Direction.fromString(sortDir), sortBy);
             Pageable pageable = PageRequest.of(page, size, sort);
             
-            Page<UserDto> users = userService.getAllUsers(fullName, username, role, status, pageable);
+            Slice<UserDto> users = userService.getAllUsers(fullName, username, role, status, pageable, count);
             return ResponseEntity.ok(users);
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
@@ -73,6 +133,10 @@ public class AdminController {
         try {
             UserDto user = userService.createUser(fullName, username, password, role);
             return ResponseEntity.ok(user);
+        } catch (PasswordHashingBusyException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .build();
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
@@ -91,40 +155,91 @@ public class AdminController {
     }
 
     @GetMapping("/users/{id}/books")
-    @Operation(summary = "Get user's books", description = "Get all books for a specific user")
-    public ResponseEntity<Page<BookDto>> getUserBooks(@PathVariable Long id,
+    @Operation(summary = "Get user's books", description = "Get all books for a specific user. " +
+            "Send the returned ETag as If-None-Match to get 304 Not Modified while none of them has changed")
+    public ResponseEntity<Page<BookDto>> getUserBooks(WebRequest webRequest,
+                                                     @PathVariable Long id,
                                                      @RequestParam(defaultValue = "0") int page,
                                                      @RequestParam(defaultValue = "10") int size,
                                                      @RequestParam(defaultValue = "createdAt") String sortBy,
                                                      @RequestParam(defaultValue = "desc") String sortDir) {
         try {
+            if (webRequest.checkNotModified(bookService.getUserBooksETag(id))) {
+                return null;
+            }
+
             Sort sort = Sort.by(Sort.Direction.fromString(sortDir), sortBy);
             Pageable pageable = PageRequest.of(page, size, sort);
             
             Page<BookDto> books = bookService.getUserBooksByUserId(id, pageable);
-            return ResponseEntity.ok(books);
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate()).body(books);
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
     @GetMapping("/books")
-    @Operation(summary = "Get all books", description = "Get all books with filtering and pagination")
-    public ResponseEntity<Page<BookDto>> getAllBooks(@RequestParam(required = false) String title,
-                                                   @RequestParam(required = false) String author,
-                                                   @RequestParam(required = false) Long ownerId,
-                                                   @RequestParam(defaultValue = "0") int page,
-                                                   @RequestParam(defaultValue = "10") int size,
-                                                   @RequestParam(defaultValue = "createdAt") String sortBy,
-                                                   @RequestParam(defaultValue = "desc") String sortDir) {
+    @Operation(summary = "Get all books", description = "Get all books with filtering and pagination. " +
+            "Pass cursor (empty for the first page) to use keyset pagination ordered by newest first instead of page numbers. " +
+            "count=APPROXIMATE reports a planner estimate as the total, count=NONE returns a slice without a total. " +
+            "Send the returned ETag as If-None-Match to get 304 Not Modified while no book has changed")
+    public ResponseEntity<?> getAllBooks(WebRequest webRequest,
+                                         @RequestParam(required = false) String title,
+                                         @RequestParam(required = false) String author,
+                                         @RequestParam(required = false) Long ownerId,
+                                         @RequestParam(required = false) String cursor,
+                                         @RequestParam(defaultValue = "0") int page,
+                                         @RequestParam(defaultValue = "10") int size,
+                                         @RequestParam(defaultValue = "createdAt") String sortBy,
+                                         @RequestParam(defaultValue = "desc") String sortDir,
+                                         @RequestParam(defaultValue = "EXACT") CountMode count) {
         try {
+            // planner estimates can drift without any write, so those responses get no ETag
+            if (count != CountMode.APPROXIMATE && webRequest.checkNotModified(bookService.getAllBooksETag())) {
+                return null;
+            }
+
+            if (cursor != null) {
+                return ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate())
+                        .body(bookService.getAllBooksAfter(title, author, ownerId, cursor, size));
+            }
+
             Sort sort = Sort.by(Sort.Direction.fromString(sortDir), sortBy);
             Pageable pageable = PageRequest.of(page, size, sort);
             
-            Page<BookDto> books = bookService.getAllBooks(title, author, ownerId, pageable);
-            return ResponseEntity.ok(books);
+            Slice<BookDto> books = bookService.getAllBooks(title, author, ownerId, pageable, count);
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate()).body(books);
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
     }
+
+    @PostMapping("/storage/migrate-blobs")
+    @Operation(summary = "Migrate uploads to the blob store",
+               description = "Move files uploaded before the content-addressed store into it, merging duplicates, and rewrite the references")
+    public ResponseEntity<Map<String, Object>> migrateUploadsToBlobs() {
+        try {
+            return ResponseEntity.ok(blobMigrationService.migrateLegacyUploads());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/metrics")
+    @Operation(summary = "Get runtime metrics", description = "Get cache and performance counters of the running instance")
+    public ResponseEntity<Map<String, Object>> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("userDetailsCache", userDetailsCache.getStats());
+        metrics.put("passwordHashing", passwordEncoder.getStats());
+        metrics.put("authRateLimiter", authRateLimiter.getStats());
+        metrics.put("searchIndex", bookSearchIndex.getStats());
+        metrics.put("entityCache", entityCacheMetrics.getStats());
+        metrics.put("firstPageCache", firstPageCache.getStats());
+        metrics.put("fileMetadataIndex", fileMetadataIndex.getStats());
+        metrics.put("hotFileCache", hotFileCache.getStats());
+        metrics.put("blobStore", fileStorageService.getStats());
+        metrics.put("uploadLayoutMigration", uploadLayoutMigrator.getStats());
+        metrics.put("uploadSessions", uploadSessionService.getStats());
+        return ResponseEntity.ok(metrics);
+    }
 }
@@ -2,11 +2,16 @@ package com.bookstorage.controller;
 
 import com.bookstorage.dto.AuthRequest;
 import com.bookstorage.dto.AuthResponse;
+import com.bookstorage.dto.RefreshRequest;
+import com.bookstorage.security.AuthRateLimiter;
+import com.bookstorage.security.PasswordHashingBusyException;
 import com.bookstorage.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.slf4j.Logger;
@@ -23,14 +28,25 @@ public class AuthController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private AuthRateLimiter authRateLimiter;
+
     @PostMapping("/register")
     @Operation(summary = "Register a new user", description = "Register a new user with email and password")
     public ResponseEntity<AuthResponse> register(@Valid @RequestBody AuthRequest request) {
         logger.info("Registration request received for user: {}", request.getUsername());
+        long retryAfter = authRateLimiter.acquireForUsername(request.getUsername());
+        if (retryAfter > 0) {
+            logger.warn("Registration rate limited for user: {}", request.getUsername());
+            return tooManyRequests(retryAfter);
+        }
         try {
             AuthResponse response = userService.register(request);
             logger.info("Registration successful for user: {}", request.getUsername());
             return ResponseEntity.ok(response);
+        } catch (PasswordHashingBusyException e) {
+            logger.warn("Registration rejected for user: {} - hashing capacity exceeded", request.getUsername());
+            return serviceUnavailable(e);
         } catch (Exception e) {
             logger.error("Registration failed for user: {} - {}", request.getUsername(), e.getMessage());
             return ResponseEntity.badRequest().build();
@@ -41,13 +57,45 @@ public class AuthController {
     @Operation(summary = "Login user", description = "Authenticate user with email and password")
     public ResponseEntity<AuthResponse> login(@Valid @RequestBody AuthRequest request) {
         logger.info("Login request received for user: {}", request.getUsername());
+        long retryAfter = authRateLimiter.acquireForUsername(request.getUsername());
+        if (retryAfter > 0) {
+            logger.warn("Login rate limited for user: {}", request.getUsername());
+            return tooManyRequests(retryAfter);
+        }
         try {
             AuthResponse response = userService.login(request);
             logger.info("Login successful for user: {}", request.getUsername());
             return ResponseEntity.ok(response);
+        } catch (PasswordHashingBusyException e) {
+            logger.warn("Login rejected for user: {} - hashing capacity exceeded", request.getUsername());
+            return serviceUnavailable(e);
         } catch (Exception e) {
             logger.error("Login failed for user: {} - {}", request.getUsername(), e.getMessage());
             return ResponseEntity.badRequest().build();
         }
     }
+
+    @PostMapping("/refresh")
+    @Operation(summary = "Refresh access token", description = "Exchange a refresh token for a new access token and a rotated refresh token")
+    public ResponseEntity<AuthResponse> refresh(@Valid @RequestBody RefreshRequest request) {
+        try {
+            AuthResponse response = userService.refresh(request.getRefreshToken());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            logger.warn("Token refresh failed - {}", e.getMessage());
+            return ResponseEntity.status(401).build();
+        }
+    }
+
+    private ResponseEntity<AuthResponse> serviceUnavailable(PasswordHashingBusyException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .build();
+    }
+
+    private ResponseEntity<AuthResponse> tooManyRequests(long retryAfterSeconds) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .build();
+    }
 }
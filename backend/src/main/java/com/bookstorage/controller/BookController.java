@@ -1,20 +1,29 @@
 package com.bookstorage.controller;
 
 import com.bookstorage.dto.BookDto;
+import com.bookstorage.dto.BookSuggestion;
+import com.bookstorage.dto.CountMode;
 import com.bookstorage.service.BookService;
+import com.bookstorage.service.UploadTooLargeException;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/books")
 @Tag(name = "Book Management", description = "Book management APIs")
@@ -26,48 +35,87 @@ public class BookController {
     private BookService bookService;
 
     @GetMapping
-    @Operation(summary = "Get user's books", description = "Get all books for the current user with search and pagination")
-    public ResponseEntity<Page<BookDto>> getUserBooks(Authentication authentication,
-                                                     @RequestParam(required = false) String search,
-                                                     @RequestParam(defaultValue = "0") int page,
-                                                     @RequestParam(defaultValue = "10") int size,
-                                                     @RequestParam(defaultValue = "createdAt") String sortBy,
-                                                     @RequestParam(defaultValue = "desc") String sortDir) {
+    @Operation(summary = "Get user's books", description = "Get all books for the current user with search and pagination. " +
+            "Pass cursor (empty for the first page) to use keyset pagination ordered by newest first instead of page numbers. " +
+            "count=APPROXIMATE reports a planner estimate as the total, count=NONE returns a slice without a total. " +
+            "With full-text search enabled, sortBy=relevance ranks search results. " +
+            "Send the returned ETag as If-None-Match to get 304 Not Modified while no book has changed")
+    public ResponseEntity<?> getUserBooks(Authentication authentication,
+                                          WebRequest webRequest,
+                                          @RequestParam(required = false) String search,
+                                          @RequestParam(required = false) String cursor,
+                                          @RequestParam(defaultValue = "0") int page,
+                                          @RequestParam(defaultValue = "10") int size,
+                                          @RequestParam(defaultValue = "createdAt") String sortBy,
+                                          @RequestParam(defaultValue = "desc") String sortDir,
+                                          @RequestParam(defaultValue = "EXACT") CountMode count) {
         try {
             String username = authentication.getName();
+            // planner estimates can drift without any write, so those responses get no ETag
+            if (count != CountMode.APPROXIMATE && webRequest.checkNotModified(bookService.getUserBooksETag(username))) {
+                return null;
+            }
+
+            if (cursor != null) {
+                return ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate())
+                        .body(bookService.getUserBooksAfter(username, search, cursor, size));
+            }
+
             Sort sort = Sort.by(Sort.Direction.fromString(sortDir), sortBy);
             Pageable pageable = PageRequest.of(page, size, sort);
             
-            Page<BookDto> books = bookService.getUserBooks(username, search, pageable);
-            return ResponseEntity.ok(books);
+            Slice<BookDto> books = bookService.getUserBooks(username, search, pageable, count);
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate()).body(books);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/suggest")
+    @Operation(summary = "Suggest titles and authors", description = "Typeahead completions from the current user's titles " +
+            "and author names; q matches the start of any word")
+    public ResponseEntity<List<BookSuggestion>> suggest(Authentication authentication,
+                                                        @RequestParam String q,
+                                                        @RequestParam(defaultValue = "8") int limit) {
+        try {
+            String username = authentication.getName();
+            return ResponseEntity.ok(bookService.suggest(username, q, Math.min(limit, 50)));
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
     @GetMapping("/{id}")
-    @Operation(summary = "Get book by ID", description = "Get a specific book by its ID")
-    public ResponseEntity<BookDto> getBookById(Authentication authentication, @PathVariable Long id) {
+    @Operation(summary = "Get book by ID", description = "Get a specific book by its ID. " +
+            "Send the returned ETag as If-None-Match to get 304 Not Modified while the book is unchanged")
+    public ResponseEntity<BookDto> getBookById(Authentication authentication, WebRequest webRequest, @PathVariable Long id) {
         try {
             String username = authentication.getName();
+            if (webRequest.checkNotModified(bookService.getBookETag(id, username))) {
+                return null;
+            }
             BookDto book = bookService.getBookById(id, username);
-            return ResponseEntity.ok(book);
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate()).body(book);
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
     @PostMapping
-    @Operation(summary = "Create a new book", description = "Create a new book with optional cover image and book file")
+    @Operation(summary = "Create a new book", description = "Create a new book with optional cover image and book file, " +
+            "sent as files or as the ids of finalized resumable uploads")
     public ResponseEntity<BookDto> createBook(Authentication authentication,
                                             @RequestParam String title,
                                             @RequestParam(required = false) String author,
                                             @RequestParam(required = false) String description,
                                             @RequestParam(required = false) MultipartFile coverImage,
-                                            @RequestParam(required = false) MultipartFile bookFile) {
+                                            @RequestParam(required = false) MultipartFile bookFile,
+                                            @RequestParam(required = false) String coverUploadId,
+                                            @RequestParam(required = false) String bookFileUploadId) {
         try {
             String username = authentication.getName();
-            BookDto book = bookService.createBook(username, title, author, description, coverImage, bookFile);
+            BookDto book = bookService.createBook(username, title, author, description, coverImage, bookFile,
+                    coverUploadId, bookFileUploadId);
             return ResponseEntity.ok(book);
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
@@ -75,18 +123,58 @@ public class BookController {
     }
 
     @PutMapping("/{id}")
-    @Operation(summary = "Update a book", description = "Update an existing book with new information")
+    @Operation(summary = "Update a book", description = "Update an existing book with new information; new files may be " +
+            "sent as files or as the ids of finalized resumable uploads")
     public ResponseEntity<BookDto> updateBook(Authentication authentication,
                                             @PathVariable Long id,
                                             @RequestParam(required = false) String title,
                                             @RequestParam(required = false) String author,
                                             @RequestParam(required = false) String description,
                                             @RequestParam(required = false) MultipartFile coverImage,
-                                            @RequestParam(required = false) MultipartFile bookFile) {
+                                            @RequestParam(required = false) MultipartFile bookFile,
+                                            @RequestParam(required = false) String coverUploadId,
+                                            @RequestParam(required = false) String bookFileUploadId) {
         try {
             String username = authentication.getName();
-            BookDto book = bookService.updateBook(id, username, title, author, description, coverImage, bookFile);
+            BookDto book = bookService.updateBook(id, username, title, author, description, coverImage, bookFile,
+                    coverUploadId, bookFileUploadId);
+            return ResponseEntity.ok(book);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PutMapping("/{id}/cover")
+    @Operation(summary = "Upload a cover image",
+               description = "Replace the book's cover with the raw request body (application/octet-stream), streamed straight to storage")
+    public ResponseEntity<BookDto> uploadCover(Authentication authentication,
+                                               @PathVariable Long id,
+                                               @RequestParam(required = false) String filename,
+                                               HttpServletRequest request) {
+        try {
+            BookDto book = bookService.uploadCover(id, authentication.getName(), request.getInputStream(),
+                    request.getContentLengthLong(), filename);
+            return ResponseEntity.ok(book);
+        } catch (UploadTooLargeException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PutMapping("/{id}/file")
+    @Operation(summary = "Upload a book file",
+               description = "Replace the book's file with the raw request body (application/octet-stream), streamed straight to storage")
+    public ResponseEntity<BookDto> uploadBookFile(Authentication authentication,
+                                                  @PathVariable Long id,
+                                                  @RequestParam(required = false) String filename,
+                                                  HttpServletRequest request) {
+        try {
+            BookDto book = bookService.uploadBookFile(id, authentication.getName(), request.getInputStream(),
+                    request.getContentLengthLong(), filename);
             return ResponseEntity.ok(book);
+        } catch (UploadTooLargeException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
@@ -1,18 +1,27 @@
 package com.bookstorage.controller;
 
+import com.bookstorage.service.FileMetadataIndex;
+import com.bookstorage.service.FileMetadataIndex.FileMetadata;
+import com.bookstorage.service.HotFileCache;
+import com.bookstorage.util.FileServingUtil;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
-import org.springframework.http.HttpHeaders;
+import org.springframework.http.CacheControl;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
 
 @RestController
 @RequestMapping("/files")
@@ -21,86 +30,88 @@ public class FileController {
 
     private static final Logger logger = LoggerFactory.getLogger(FileController.class);
 
+    // Uploads always get a fresh name, so the bytes behind a URL never change
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable();
+
+    @Autowired
+    private FileMetadataIndex fileMetadataIndex;
+
+    @Autowired
+    private HotFileCache hotFileCache;
+
     @Value("${file.upload.path}")
     private String uploadPath;
 
     @GetMapping("/{subdirectory}/{filename:.+}")
-    public ResponseEntity<Resource> serveFile(@PathVariable String subdirectory, 
-                                            @PathVariable String filename) {
+    public void serveFile(@PathVariable String subdirectory,
+                          @PathVariable String filename,
+                          HttpServletRequest request,
+                          HttpServletResponse response) throws IOException {
         logger.debug("📁 File request - subdirectory: {}, filename: {}", subdirectory, filename);
         
-        try {
-            Path filePath = Paths.get(uploadPath + subdirectory + "/" + filename);
-            Resource resource = new UrlResource(filePath.toUri());
+        String relativePath = subdirectory + "/" + filename;
+        FileMetadata metadata = fileMetadataIndex.get(relativePath);
+        if (metadata == null) {
+            logger.warn("📁 File not found - {}:{}", subdirectory, filename);
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
 
-            if (resource.exists() && resource.isReadable()) {
-                String contentType = determineContentType(filename);
-                logger.debug("📁 File served successfully - {}:{} ({} bytes)", subdirectory, filename, resource.contentLength());
-                
-                return ResponseEntity.ok()
-                        .contentType(MediaType.parseMediaType(contentType))
-                        .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + resource.getFilename() + "\"")
-                        .body(resource);
+        try {
+            String etag = "\"" + metadata.sha256() + "\"";
+            ByteBuffer content = hotFileCache.get(relativePath, metadata.file(), metadata.size(), metadata.lastModified());
+            if (content != null) {
+                FileServingUtil.serve(content, metadata.lastModified(), metadata.contentType(), filename, etag, IMMUTABLE,
+                        request, response);
             } else {
-                logger.warn("📁 File not found - {}:{}", subdirectory, filename);
-                return ResponseEntity.notFound().build();
+                FileServingUtil.serve(metadata.file(), metadata.size(), metadata.lastModified(), metadata.contentType(),
+                        filename, etag, IMMUTABLE, request, response);
+            }
+            logger.debug("📁 File served - {}:{} ({})", subdirectory, filename, response.getStatus());
+        } catch (NoSuchFileException e) {
+            // removed from disk behind the index's back
+            fileMetadataIndex.remove(relativePath);
+            if (!response.isCommitted()) {
+                response.reset();
+                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
             }
         } catch (IOException e) {
-            logger.error("📁 Error serving file - {}:{} - {}", subdirectory, filename, e.getMessage());
-            return ResponseEntity.notFound().build();
+            // most often the client went away mid-transfer (seeking readers cancel requests all the time)
+            logger.debug("📁 File transfer aborted - {}:{} - {}", subdirectory, filename, e.getMessage());
         }
     }
 
     @GetMapping("/default-book-cover.jpg")
-    public ResponseEntity<Resource> serveDefaultBookCover() {
-        try {
-            Path filePath = Paths.get(uploadPath + "defaults/default-book-cover.jpg");
-            Resource resource = new UrlResource(filePath.toUri());
-
-            if (resource.exists() && resource.isReadable()) {
-                return ResponseEntity.ok()
-                        .contentType(MediaType.IMAGE_JPEG)
-                        .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"default-book-cover.jpg\"")
-                        .body(resource);
-            } else {
-                return ResponseEntity.notFound().build();
-            }
-        } catch (IOException e) {
-            return ResponseEntity.notFound().build();
-        }
+    public void serveDefaultBookCover(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        serveDefault("default-book-cover.jpg", request, response);
     }
 
     @GetMapping("/default-profile.jpg")
-    public ResponseEntity<Resource> serveDefaultProfilePhoto() {
-        try {
-            Path filePath = Paths.get(uploadPath + "defaults/default-profile.jpg");
-            Resource resource = new UrlResource(filePath.toUri());
+    public void serveDefaultProfilePhoto(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        serveDefault("default-profile.jpg", request, response);
+    }
 
-            if (resource.exists() && resource.isReadable()) {
-                return ResponseEntity.ok()
-                        .contentType(MediaType.IMAGE_JPEG)
-                        .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"default-profile.jpg\"")
-                        .body(resource);
+    private void serveDefault(String filename, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path filePath = Paths.get(uploadPath + "defaults/" + filename);
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+        } catch (IOException e) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        try {
+            // defaults can be replaced in place, so the cached copy is checked against the file's size and mtime
+            long lastModified = attributes.lastModifiedTime().toMillis();
+            ByteBuffer content = hotFileCache.get("defaults/" + filename, filePath, attributes.size(), lastModified);
+            if (content != null) {
+                FileServingUtil.serve(content, lastModified, MediaType.IMAGE_JPEG_VALUE, filename, null, null, request, response);
             } else {
-                return ResponseEntity.notFound().build();
+                FileServingUtil.serve(filePath, attributes.size(), lastModified, MediaType.IMAGE_JPEG_VALUE, filename, null, null,
+                        request, response);
             }
         } catch (IOException e) {
-            return ResponseEntity.notFound().build();
+            logger.debug("📁 File transfer aborted - defaults:{} - {}", filename, e.getMessage());
         }
     }
-
-    private String determineContentType(String filename) {
-        String extension = filename.substring(filename.lastIndexOf(".") + 1).toLowerCase();
-        
-        return switch (extension) {
-            case "jpg", "jpeg" -> "image/jpeg";
-            case "png" -> "image/png";
-            case "gif" -> "image/gif";
-            case "pdf" -> "application/pdf";
-            case "txt" -> "text/plain";
-            case "epub" -> "application/epub+zip";
-            case "mobi" -> "application/x-mobipocket-ebook";
-            default -> "application/octet-stream";
-        };
-    }
 }
@@ -0,0 +1,104 @@
+package com.bookstorage.controller;
+
+import com.bookstorage.dto.UploadSessionDto;
+import com.bookstorage.service.UploadNotFoundException;
+import com.bookstorage.service.UploadSessionService;
+import com.bookstorage.service.UploadStateException;
+import com.bookstorage.service.UploadTooLargeException;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/uploads")
+@Tag(name = "Resumable Uploads", description = "Chunked, resumable upload APIs for large book files")
+@SecurityRequirement(name = "bearerAuth")
+@CrossOrigin(origins = "*")
+public class UploadController {
+
+    @Autowired
+    private UploadSessionService uploadSessionService;
+
+    @PostMapping
+    @Operation(summary = "Start a resumable upload", description = "Create an upload session for a file of the given size")
+    public ResponseEntity<UploadSessionDto> createUpload(Authentication authentication,
+                                                         @RequestParam String filename,
+                                                         @RequestParam long size) {
+        try {
+            return ResponseEntity.ok(uploadSessionService.create(authentication.getName(), filename, size));
+        } catch (UploadTooLargeException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/{id}")
+    @Operation(summary = "Get upload progress", description = "Get the committed offset to resume an upload from; " +
+            "404 once the session is cancelled or expired, so the upload has to start over")
+    public ResponseEntity<UploadSessionDto> getUpload(Authentication authentication, @PathVariable String id) {
+        try {
+            return ResponseEntity.ok(uploadSessionService.get(authentication.getName(), id));
+        } catch (UploadNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PutMapping("/{id}")
+    @Operation(summary = "Upload a chunk",
+               description = "Write the raw request body (application/octet-stream) at the offset; chunks may arrive in any order. " +
+                       "409 with the session once it is finalized, 404 once it is cancelled or expired")
+    public ResponseEntity<UploadSessionDto> uploadChunk(Authentication authentication,
+                                                        @PathVariable String id,
+                                                        @RequestParam long offset,
+                                                        HttpServletRequest request) {
+        try {
+            return ResponseEntity.ok(uploadSessionService.writeChunk(authentication.getName(), id, offset, request.getInputStream()));
+        } catch (UploadNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (UploadStateException e) {
+            // the body tells the client where to resume from, or that the upload is already finalized
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getSession());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PostMapping("/{id}/finalize")
+    @Operation(summary = "Finalize an upload",
+               description = "Store a complete upload; its id can then be passed to book create or update as bookFileUploadId or coverUploadId. " +
+                       "409 with the session, and so the offset to resume from, if bytes are missing")
+    public ResponseEntity<UploadSessionDto> finalizeUpload(Authentication authentication, @PathVariable String id) {
+        try {
+            return ResponseEntity.ok(uploadSessionService.finalizeUpload(authentication.getName(), id));
+        } catch (UploadNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (UploadStateException e) {
+            // the body tells the client where to resume from, or that the upload is already finalized
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getSession());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    @Operation(summary = "Cancel an upload", description = "Discard an upload session and everything written to it")
+    public ResponseEntity<Void> cancelUpload(Authentication authentication, @PathVariable String id) {
+        try {
+            uploadSessionService.cancel(authentication.getName(), id);
+            return ResponseEntity.ok().build();
+        } catch (UploadNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
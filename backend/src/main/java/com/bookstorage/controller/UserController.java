@@ -1,14 +1,19 @@
 package com.bookstorage.controller;
 
 import com.bookstorage.dto.UserDto;
+import com.bookstorage.security.PasswordHashingBusyException;
 import com.bookstorage.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 @RestController
@@ -22,12 +27,16 @@ public class UserController {
     private UserService userService;
 
     @GetMapping("/me")
-    @Operation(summary = "Get current user profile", description = "Get the profile of the currently authenticated user")
-    public ResponseEntity<UserDto> getCurrentUser(Authentication authentication) {
+    @Operation(summary = "Get current user profile", description = "Get the profile of the currently authenticated user. " +
+            "Send the returned ETag as If-None-Match to get 304 Not Modified while the profile is unchanged")
+    public ResponseEntity<UserDto> getCurrentUser(Authentication authentication, WebRequest webRequest) {
         try {
             String username = authentication.getName();
+            if (webRequest.checkNotModified(userService.getCurrentUserETag(username))) {
+                return null;
+            }
             UserDto user = userService.getCurrentUser(username);
-            return ResponseEntity.ok(user);
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate()).body(user);
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
@@ -56,6 +65,10 @@ public class UserController {
             String username = authentication.getName();
             UserDto user = userService.updatePassword(username, currentPassword, newPassword);
             return ResponseEntity.ok(user);
+        } catch (PasswordHashingBusyException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .build();
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
@@ -6,6 +6,7 @@ import com.bookstorage.entity.UserStatus;
 public class AuthResponse {
 
     private String token;
+    private String refreshToken;
     private String tokenType = "Bearer";
     private Long userId;
     private String username;
@@ -37,6 +38,14 @@ public class AuthResponse {
         this.token = token;
     }
 
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+
     public String getTokenType() {
         return tokenType;
     }
@@ -37,6 +37,25 @@ public class BookDto {
         }
     }
 
+    /**
+     * Used by the constructor-expression queries in BookRepository, which select these columns
+     * with the owner joined instead of loading Book and User entities.
+     */
+    public BookDto(Long id, String title, String author, String description, String imageUrl,
+                   String contentUrl, Long ownerId, String ownerName,
+                   LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.id = id;
+        this.title = title;
+        this.author = author;
+        this.description = description;
+        this.imageUrl = imageUrl;
+        this.contentUrl = contentUrl;
+        this.ownerId = ownerId;
+        this.ownerName = ownerName;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
     // Getters and Setters
     public Long getId() {
         return id;
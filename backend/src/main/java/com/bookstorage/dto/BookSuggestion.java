@@ -0,0 +1,48 @@
+package com.bookstorage.dto;
+
+/**
+ * A typeahead completion: a title or author name from the user's catalog and how many books carry it.
+ */
+public class BookSuggestion {
+
+    public static final String TYPE_TITLE = "title";
+    public static final String TYPE_AUTHOR = "author";
+
+    private String text;
+    private String type;
+    private int books;
+
+    // Constructors
+    public BookSuggestion() {}
+
+    public BookSuggestion(String text, String type, int books) {
+        this.text = text;
+        this.type = type;
+        this.books = books;
+    }
+
+    // Getters and Setters
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public int getBooks() {
+        return books;
+    }
+
+    public void setBooks(int books) {
+        this.books = books;
+    }
+}
@@ -0,0 +1,10 @@
+package com.bookstorage.dto;
+
+/**
+ * How a paged listing reports its total: an exact COUNT(*), a planner estimate, or no total at all (Slice).
+ */
+public enum CountMode {
+    EXACT,
+    APPROXIMATE,
+    NONE
+}
@@ -0,0 +1,89 @@
+package com.bookstorage.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of a resumable upload. committedOffset is where a client resumes; committedBytes also counts
+ * chunks written further ahead. Once finalized, the id can be passed to book create/update.
+ */
+public class UploadSessionDto {
+
+    private String id;
+    private String filename;
+    private long size;
+    private long committedOffset;
+    private long committedBytes;
+    private boolean finalized;
+    private LocalDateTime expiresAt;
+
+    // Constructors
+    public UploadSessionDto() {}
+
+    public UploadSessionDto(String id, String filename, long size, long committedOffset, long committedBytes,
+                            boolean finalized, LocalDateTime expiresAt) {
+        this.id = id;
+        this.filename = filename;
+        this.size = size;
+        this.committedOffset = committedOffset;
+        this.committedBytes = committedBytes;
+        this.finalized = finalized;
+        this.expiresAt = expiresAt;
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public void setFilename(String filename) {
+        this.filename = filename;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public long getCommittedOffset() {
+        return committedOffset;
+    }
+
+    public void setCommittedOffset(long committedOffset) {
+        this.committedOffset = committedOffset;
+    }
+
+    public long getCommittedBytes() {
+        return committedBytes;
+    }
+
+    public void setCommittedBytes(long committedBytes) {
+        this.committedBytes = committedBytes;
+    }
+
+    public boolean isFinalized() {
+        return finalized;
+    }
+
+    public void setFinalized(boolean finalized) {
+        this.finalized = finalized;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
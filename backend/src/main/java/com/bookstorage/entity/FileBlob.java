@@ -0,0 +1,74 @@
+package com.bookstorage.entity;
+
+import jakarta.persistence.*;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import java.time.LocalDateTime;
+
+/**
+ * One distinct upload content in the blob store, with the number of imageUrl / contentUrl / profilePhoto
+ * values that reference it. The blob file is deleted when the count drops to zero.
+ */
+@Entity
+@Table(name = "file_blobs")
+@EntityListeners(AuditingEntityListener.class)
+public class FileBlob {
+
+    // Hex SHA-256 of the content; also its name on disk
+    @Id
+    @Column(name = "sha256", length = 64)
+    private String sha256;
+
+    @Column(name = "size", nullable = false)
+    private Long size;
+
+    @Column(name = "ref_count", nullable = false)
+    private Long refCount;
+
+    @CreatedDate
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    // Constructors
+    public FileBlob() {}
+
+    public FileBlob(String sha256, Long size, Long refCount) {
+        this.sha256 = sha256;
+        this.size = size;
+        this.refCount = refCount;
+    }
+
+    // Getters and Setters
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public void setSize(Long size) {
+        this.size = size;
+    }
+
+    public Long getRefCount() {
+        return refCount;
+    }
+
+    public void setRefCount(Long refCount) {
+        this.refCount = refCount;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -4,6 +4,11 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -15,6 +20,9 @@ import java.util.List;
 @Entity
 @Table(name = "users")
 @EntityListeners(AuditingEntityListener.class)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
+@NaturalIdCache(region = "users-by-username")
 public class User {
 
     @Id
@@ -28,6 +36,7 @@ public class User {
 
     @NotBlank(message = "Username (Gmail) is required")
     @Email(message = "Username must be a valid email address")
+    @NaturalId(mutable = true)
     @Column(name = "username", unique = true, nullable = false)
     private String username;
 
@@ -47,6 +56,15 @@ public class User {
     @Column(name = "status", nullable = false)
     private UserStatus status = UserStatus.ACTIVE;
 
+    @ColumnDefault("0")
+    @Column(name = "token_epoch", nullable = false)
+    private Integer tokenEpoch = 0;
+
+    // Denormalized size of books, maintained by BookService so listings never touch the collection
+    @ColumnDefault("0")
+    @Column(name = "books_count", nullable = false)
+    private Integer booksCount = 0;
+
     @CreatedDate
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -124,6 +142,14 @@ public class User {
         this.status = status;
     }
 
+    public Integer getTokenEpoch() {
+        return tokenEpoch;
+    }
+
+    public void setTokenEpoch(Integer tokenEpoch) {
+        this.tokenEpoch = tokenEpoch;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -157,7 +183,15 @@ public class User {
         return UserStatus.ACTIVE.equals(this.status);
     }
 
+    public void bumpTokenEpoch() {
+        this.tokenEpoch = (tokenEpoch != null ? tokenEpoch : 0) + 1;
+    }
+
     public int getBooksCount() {
-        return books != null ? books.size() : 0;
+        return booksCount != null ? booksCount : 0;
+    }
+
+    public void setBooksCount(Integer booksCount) {
+        this.booksCount = booksCount;
     }
 }
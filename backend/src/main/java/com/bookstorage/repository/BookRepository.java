@@ -1,19 +1,44 @@
 package com.bookstorage.repository;
 
+import com.bookstorage.dto.BookDto;
 import com.bookstorage.entity.Book;
 import com.bookstorage.entity.User;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface BookRepository extends JpaRepository<Book, Long> {
 
+    String BOOK_DTO_SELECT = "SELECT new com.bookstorage.dto.BookDto(" +
+           "b.id, b.title, b.author, b.description, b.imageUrl, b.contentUrl, " +
+           "o.id, o.fullName, b.createdAt, b.updatedAt) FROM Book b JOIN b.owner o ";
+    
+    // Keyset condition for (createdAt DESC, id DESC); the leading <= keeps it an index range scan
+    String SEEK_AFTER = "b.createdAt <= :createdAt AND (b.createdAt < :createdAt OR b.id < :id) ";
+    
+    String SEEK_ORDER = "ORDER BY b.createdAt DESC, b.id DESC";
+    
+    String SEARCH_CONDITION = "(LOWER(b.title) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
+           "LOWER(b.author) LIKE LOWER(CONCAT('%', :searchTerm, '%'))) ";
+    
+    String FILTER_CONDITION = "(:title IS NULL OR LOWER(b.title) LIKE LOWER(CONCAT('%', :title, '%'))) AND " +
+           "(:author IS NULL OR LOWER(b.author) LIKE LOWER(CONCAT('%', :author, '%'))) AND " +
+           "(:ownerId IS NULL OR b.owner.id = :ownerId) ";
+
     List<Book> findByOwner(User owner);
     
     Page<Book> findByOwner(User owner, Pageable pageable);
@@ -42,4 +67,84 @@ public interface BookRepository extends JpaRepository<Book, Long> {
     
     @Query("SELECT b FROM Book b WHERE b.owner.id = :ownerId ORDER BY b.createdAt DESC")
     Page<Book> findByOwnerIdOrderByCreatedAtDesc(@Param("ownerId") Long ownerId, Pageable pageable);
+    
+    // DTO projections: the owner is joined once and no managed entities are created
+    
+    @Query(value = BOOK_DTO_SELECT + "WHERE o.username = :username",
+           countQuery = "SELECT COUNT(b) FROM Book b WHERE b.owner.username = :username")
+    Page<BookDto> findDtoByOwnerUsername(@Param("username") String username, Pageable pageable);
+    
+    @Query(value = BOOK_DTO_SELECT + "WHERE o.username = :username AND " + SEARCH_CONDITION,
+           countQuery = "SELECT COUNT(b) FROM Book b WHERE b.owner.username = :username AND " + SEARCH_CONDITION)
+    Page<BookDto> findDtoByOwnerUsernameAndSearchTerm(@Param("username") String username,
+                                                      @Param("searchTerm") String searchTerm,
+                                                      Pageable pageable);
+    
+    @Query(value = BOOK_DTO_SELECT + "WHERE " + FILTER_CONDITION,
+           countQuery = "SELECT COUNT(b) FROM Book b WHERE " + FILTER_CONDITION)
+    Page<BookDto> findDtoByFilters(@Param("title") String title,
+                                   @Param("author") String author,
+                                   @Param("ownerId") Long ownerId,
+                                   Pageable pageable);
+    
+    @Query(value = BOOK_DTO_SELECT + "WHERE o.id = :ownerId",
+           countQuery = "SELECT COUNT(b) FROM Book b WHERE b.owner.id = :ownerId")
+    Page<BookDto> findDtoByOwnerId(@Param("ownerId") Long ownerId, Pageable pageable);
+    
+    // Count-free variants: Slice fetches one extra row to know whether a next page exists
+    
+    @Query(BOOK_DTO_SELECT + "WHERE o.username = :username")
+    Slice<BookDto> findDtoSliceByOwnerUsername(@Param("username") String username, Pageable pageable);
+    
+    @Query(BOOK_DTO_SELECT + "WHERE o.username = :username AND " + SEARCH_CONDITION)
+    Slice<BookDto> findDtoSliceByOwnerUsernameAndSearchTerm(@Param("username") String username,
+                                                            @Param("searchTerm") String searchTerm,
+                                                            Pageable pageable);
+    
+    @Query(BOOK_DTO_SELECT + "WHERE " + FILTER_CONDITION)
+    Slice<BookDto> findDtoSliceByFilters(@Param("title") String title,
+                                         @Param("author") String author,
+                                         @Param("ownerId") Long ownerId,
+                                         Pageable pageable);
+    
+    // Keyset (seek) pagination: no OFFSET and no count; callers pass Pageable.ofSize(limit)
+    
+    @Query(BOOK_DTO_SELECT + "WHERE o.username = :username AND " + SEEK_AFTER + SEEK_ORDER)
+    List<BookDto> findDtoByOwnerUsernameAfter(@Param("username") String username,
+                                              @Param("createdAt") LocalDateTime createdAt,
+                                              @Param("id") Long id,
+                                              Pageable limit);
+    
+    @Query(BOOK_DTO_SELECT + "WHERE o.username = :username AND " + SEARCH_CONDITION + "AND " + SEEK_AFTER + SEEK_ORDER)
+    List<BookDto> findDtoByOwnerUsernameAndSearchTermAfter(@Param("username") String username,
+                                                           @Param("searchTerm") String searchTerm,
+                                                           @Param("createdAt") LocalDateTime createdAt,
+                                                           @Param("id") Long id,
+                                                           Pageable limit);
+    
+    @Query(BOOK_DTO_SELECT + "WHERE " + FILTER_CONDITION + "AND " + SEEK_AFTER + SEEK_ORDER)
+    List<BookDto> findDtoByFiltersAfter(@Param("title") String title,
+                                        @Param("author") String author,
+                                        @Param("ownerId") Long ownerId,
+                                        @Param("createdAt") LocalDateTime createdAt,
+                                        @Param("id") Long id,
+                                        Pageable limit);
+    
+    // In-memory search index: load matched ids back as DTOs, and stream every book once at startup
+    
+    @Query(BOOK_DTO_SELECT + "WHERE b.id IN :ids")
+    List<BookDto> findDtoByIdIn(@Param("ids") Collection<Long> ids);
+    
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT b.id, b.owner.id, b.title, b.author, b.description, b.createdAt, b.updatedAt FROM Book b")
+    Stream<Object[]> streamAllForIndex();
+    
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT b.owner.id, b.title, b.author FROM Book b")
+    Stream<Object[]> streamTitlesAndAuthors();
+    
+    // Books still pointing at files stored before the blob store
+    @Query("SELECT b.id FROM Book b WHERE (b.imageUrl IS NOT NULL AND b.imageUrl NOT LIKE 'blobs/%') " +
+           "OR (b.contentUrl IS NOT NULL AND b.contentUrl NOT LIKE 'blobs/%')")
+    List<Long> findIdsWithLegacyUploads();
 }
@@ -0,0 +1,153 @@
+package com.bookstorage.repository;
+
+import com.bookstorage.dto.BookDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.*;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Ranked book search over the PostgreSQL search_vector column and trigram indexes
+ * created by db/search-postgresql.sql. Only used once that script has been applied.
+ */
+@Repository
+public class BookSearchRepository {
+
+    public static final String SORT_RELEVANCE = "relevance";
+
+    private static final Map<String, String> SORT_COLUMNS = Map.of(
+            "id", "b.id",
+            "title", "b.title",
+            "author", "b.author",
+            "createdAt", "b.created_at",
+            "updatedAt", "b.updated_at");
+
+    // A row matches on any indexed word or, via the trigram indexes, on a substring of title or author
+    private static final String MATCH = "(b.search_vector @@ q.query " +
+            "OR lower(b.title) LIKE :pattern OR lower(b.author) LIKE :pattern)";
+
+    private static final String RANK = "(ts_rank(b.search_vector, q.query) + similarity(lower(b.title), :term))";
+
+    private static final String SELECT = "SELECT b.id, b.title, b.author, b.description, b.image_url, b.content_url, " +
+            "b.owner_id, o.full_name AS owner_name, b.created_at, b.updated_at";
+
+    private static final String FROM = " FROM books b JOIN users o ON o.id = b.owner_id " +
+            "CROSS JOIN websearch_to_tsquery('simple', :term) AS q(query) " +
+            "WHERE o.username = :username AND " + MATCH;
+
+    private static final RowMapper<BookDto> BOOK_DTO_MAPPER = (rs, rowNum) -> new BookDto(
+            rs.getLong("id"),
+            rs.getString("title"),
+            rs.getString("author"),
+            rs.getString("description"),
+            rs.getString("image_url"),
+            rs.getString("content_url"),
+            rs.getLong("owner_id"),
+            rs.getString("owner_name"),
+            toLocalDateTime(rs.getTimestamp("created_at")),
+            toLocalDateTime(rs.getTimestamp("updated_at")));
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    private volatile boolean enabled;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Search one owner's books. Sorting by {@value #SORT_RELEVANCE} orders by rank, newest first on ties.
+     */
+    public Page<BookDto> searchOwnerBooks(String username, String searchTerm, Pageable pageable) {
+        return (Page<BookDto>) search(username, searchTerm, pageable, true);
+    }
+
+    /**
+     * Same as {@link #searchOwnerBooks} without the count query.
+     */
+    public Slice<BookDto> searchOwnerBooksSlice(String username, String searchTerm, Pageable pageable) {
+        return search(username, searchTerm, pageable, false);
+    }
+
+    /**
+     * Up to {@code limit} of one owner's matching books after the keyset position, newest first,
+     * for cursor paging; the same matches as {@link #searchOwnerBooks}.
+     */
+    public List<BookDto> searchOwnerBooksAfter(String username, String searchTerm, LocalDateTime createdAt,
+                                               Long id, int limit) {
+        MapSqlParameterSource params = searchParams(username, searchTerm)
+                .addValue("createdAt", createdAt)
+                .addValue("id", id)
+                .addValue("limit", limit);
+        String sql = SELECT + FROM + " AND b.created_at <= :createdAt AND (b.created_at < :createdAt OR b.id < :id)" +
+                " ORDER BY b.created_at DESC, b.id DESC LIMIT :limit";
+        return jdbcTemplate.query(sql, params, BOOK_DTO_MAPPER);
+    }
+
+    private Slice<BookDto> search(String username, String searchTerm, Pageable pageable, boolean withCount) {
+        MapSqlParameterSource params = searchParams(username, searchTerm);
+
+        int limit = withCount ? pageable.getPageSize() : pageable.getPageSize() + 1;
+        params.addValue("limit", limit).addValue("offset", pageable.getOffset());
+
+        String sql = SELECT + FROM + " ORDER BY " + orderBy(pageable.getSort()) + " LIMIT :limit OFFSET :offset";
+        List<BookDto> rows = jdbcTemplate.query(sql, params, BOOK_DTO_MAPPER);
+
+        if (withCount) {
+            Long total = jdbcTemplate.queryForObject("SELECT COUNT(*)" + FROM, params, Long.class);
+            return new PageImpl<>(rows, pageable, total != null ? total : 0);
+        }
+
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? rows.subList(0, pageable.getPageSize()) : rows, pageable, hasNext);
+    }
+
+    private static MapSqlParameterSource searchParams(String username, String searchTerm) {
+        String term = searchTerm.toLowerCase(Locale.ROOT);
+        return new MapSqlParameterSource()
+                .addValue("username", username)
+                .addValue("term", term)
+                .addValue("pattern", "%" + escapeLike(term) + "%");
+    }
+
+    private static String orderBy(Sort sort) {
+        List<String> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            String direction = order.isAscending() ? " ASC" : " DESC";
+            if (SORT_RELEVANCE.equals(order.getProperty())) {
+                orders.add(RANK + direction);
+            } else {
+                String column = SORT_COLUMNS.get(order.getProperty());
+                if (column == null) {
+                    throw new IllegalArgumentException("Unsupported sort property: " + order.getProperty());
+                }
+                orders.add(column + direction);
+            }
+        }
+        orders.add("b.created_at DESC");
+        orders.add("b.id DESC");
+        return String.join(", ", orders);
+    }
+
+    private static String escapeLike(String term) {
+        return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
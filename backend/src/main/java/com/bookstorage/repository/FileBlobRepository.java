@@ -0,0 +1,40 @@
+package com.bookstorage.repository;
+
+import com.bookstorage.entity.FileBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface FileBlobRepository extends JpaRepository<FileBlob, String> {
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE FileBlob b SET b.refCount = b.refCount + :delta WHERE b.sha256 = :sha256")
+    int adjustRefCount(@Param("sha256") String sha256, @Param("delta") long delta);
+
+    // Counts are changed, created and dropped in SQL only, so a FileBlob held in the persistence context never
+    // stands in for the row
+
+    @Transactional
+    @Modifying
+    @Query("INSERT INTO FileBlob (sha256, size, refCount, createdAt) VALUES (:sha256, :size, 1, :createdAt)")
+    int insertFirstReference(@Param("sha256") String sha256, @Param("size") long size,
+                             @Param("createdAt") LocalDateTime createdAt);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM FileBlob b WHERE b.sha256 = :sha256 AND b.refCount <= 0")
+    int deleteIfUnreferenced(@Param("sha256") String sha256);
+
+    // blobs, bytes on disk, references, and bytes the references would take without deduplication
+    @Query("SELECT COUNT(b), COALESCE(SUM(b.size), 0), COALESCE(SUM(b.refCount), 0), COALESCE(SUM(b.size * b.refCount), 0) " +
+           "FROM FileBlob b")
+    List<Object[]> summarize();
+}
@@ -0,0 +1,105 @@
+package com.bookstorage.repository;
+
+import com.bookstorage.entity.UserRole;
+import com.bookstorage.entity.UserStatus;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.OptionalLong;
+
+/**
+ * Row count estimates taken from the PostgreSQL planner (EXPLAIN) instead of running COUNT(*).
+ * Only the filters actually supplied are put into the statement, so the planner sees the real predicate.
+ */
+@Repository
+public class RowEstimateRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(RowEstimateRepository.class);
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    public OptionalLong estimateOwnerBooks(String username, String searchTerm) {
+        MapSqlParameterSource params = new MapSqlParameterSource("username", username);
+        StringBuilder sql = new StringBuilder(
+                "SELECT 1 FROM books b JOIN users o ON o.id = b.owner_id WHERE o.username = :username");
+        if (searchTerm != null) {
+            sql.append(" AND (LOWER(b.title) LIKE :pattern OR LOWER(b.author) LIKE :pattern)");
+            params.addValue("pattern", containsPattern(searchTerm));
+        }
+        return estimate(sql.toString(), params);
+    }
+
+    public OptionalLong estimateBooks(String title, String author, Long ownerId) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        List<String> conditions = new ArrayList<>();
+        if (title != null) {
+            conditions.add("LOWER(b.title) LIKE :title");
+            params.addValue("title", containsPattern(title));
+        }
+        if (author != null) {
+            conditions.add("LOWER(b.author) LIKE :author");
+            params.addValue("author", containsPattern(author));
+        }
+        if (ownerId != null) {
+            conditions.add("b.owner_id = :ownerId");
+            params.addValue("ownerId", ownerId);
+        }
+        return estimate("SELECT 1 FROM books b" + where(conditions), params);
+    }
+
+    public OptionalLong estimateUsers(String fullName, String username, UserRole role, UserStatus status) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        List<String> conditions = new ArrayList<>();
+        if (fullName != null) {
+            conditions.add("LOWER(u.full_name) LIKE :fullName");
+            params.addValue("fullName", containsPattern(fullName));
+        }
+        if (username != null) {
+            conditions.add("LOWER(u.username) LIKE :username");
+            params.addValue("username", containsPattern(username));
+        }
+        if (role != null) {
+            conditions.add("u.role = :role");
+            params.addValue("role", role.name());
+        }
+        if (status != null) {
+            conditions.add("u.status = :status");
+            params.addValue("status", status.name());
+        }
+        return estimate("SELECT 1 FROM users u" + where(conditions), params);
+    }
+
+    private OptionalLong estimate(String sql, MapSqlParameterSource params) {
+        try {
+            String plan = jdbcTemplate.queryForObject("EXPLAIN (FORMAT JSON) " + sql, params, String.class);
+            JsonNode rows = objectMapper.readTree(plan).path(0).path("Plan").path("Plan Rows");
+            if (rows.isNumber()) {
+                return OptionalLong.of(rows.asLong());
+            }
+        } catch (Exception e) {
+            logger.warn("Row estimate unavailable - {}", e.getMessage());
+        }
+        return OptionalLong.empty();
+    }
+
+    private static String where(List<String> conditions) {
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    private static String containsPattern(String term) {
+        return "%" + term.toLowerCase(Locale.ROOT) + "%";
+    }
+}
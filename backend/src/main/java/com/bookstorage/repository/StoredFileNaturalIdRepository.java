@@ -0,0 +1,13 @@
+package com.bookstorage.repository;
+
+import com.bookstorage.entity.StoredFile;
+
+import java.util.Optional;
+
+/**
+ * Path lookups resolved through Hibernate's natural-id API, so they are served from the second-level cache.
+ */
+public interface StoredFileNaturalIdRepository {
+
+    Optional<StoredFile> findByPath(String path);
+}
@@ -0,0 +1,23 @@
+package com.bookstorage.repository;
+
+import com.bookstorage.entity.StoredFile;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+public class StoredFileNaturalIdRepositoryImpl implements StoredFileNaturalIdRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<StoredFile> findByPath(String path) {
+        return entityManager.unwrap(Session.class)
+                .bySimpleNaturalId(StoredFile.class)
+                .loadOptional(path);
+    }
+}
@@ -0,0 +1,20 @@
+package com.bookstorage.repository;
+
+import com.bookstorage.entity.StoredFile;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import jakarta.persistence.QueryHint;
+
+import java.util.stream.Stream;
+
+@Repository
+public interface StoredFileRepository extends JpaRepository<StoredFile, Long>, StoredFileNaturalIdRepository {
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT f.path, f.sha256 FROM StoredFile f")
+    Stream<Object[]> streamPathsAndHashes();
+}
@@ -0,0 +1,52 @@
+package com.bookstorage.repository;
+
+import com.bookstorage.entity.Book;
+import com.bookstorage.entity.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Compare-and-set updates of the columns that reference uploads. A reference is switched only while it still
+ * holds the expected value, so a background rewrite never overwrites an upload a user made in the meantime.
+ * updated_at moves with the reference, so ETags built from it stop matching the old URL.
+ * Plain SQL, with only the touched row evicted from the second-level cache.
+ */
+@Repository
+public class UploadReferenceRepository {
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    public boolean switchBookImage(Long bookId, String expected, String replacement) {
+        return switchReference("books", "image_url", Book.class, bookId, expected, replacement);
+    }
+
+    public boolean switchBookContent(Long bookId, String expected, String replacement) {
+        return switchReference("books", "content_url", Book.class, bookId, expected, replacement);
+    }
+
+    public boolean switchProfilePhoto(Long userId, String expected, String replacement) {
+        return switchReference("users", "profile_photo", User.class, userId, expected, replacement);
+    }
+
+    private boolean switchReference(String table, String column, Class<?> entity, Long id, String expected, String replacement) {
+        int updated = jdbcTemplate.update("UPDATE " + table + " SET " + column + " = :replacement, " +
+                        "updated_at = :updatedAt WHERE id = :id AND " + column + " = :expected",
+                new MapSqlParameterSource("replacement", replacement)
+                        .addValue("updatedAt", LocalDateTime.now())
+                        .addValue("id", id)
+                        .addValue("expected", expected));
+        if (updated > 0) {
+            entityManagerFactory.getCache().evict(entity, id);
+        }
+        return updated > 0;
+    }
+}
@@ -0,0 +1,11 @@
+package com.bookstorage.repository;
+
+import com.bookstorage.entity.User;
+
+/**
+ * The denormalized books_count column, bumped in place on every book create and delete.
+ */
+public interface UserBooksCountRepository {
+
+    int adjustBooksCount(User owner, int delta);
+}
@@ -0,0 +1,41 @@
+package com.bookstorage.repository;
+
+import com.bookstorage.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.cache.spi.access.NaturalIdDataAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+public class UserBooksCountRepositoryImpl implements UserBooksCountRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Plain SQL rather than a bulk HQL update, which would make Hibernate drop every cached user; only
+     * the owner's entry and its username resolution are evicted.
+     */
+    @Override
+    @Transactional
+    public int adjustBooksCount(User owner, int delta) {
+        int updated = jdbcTemplate.update("UPDATE users SET books_count = books_count + ? WHERE id = ?", delta, owner.getId());
+
+        entityManager.getEntityManagerFactory().getCache().evict(User.class, owner.getId());
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        EntityPersister persister = session.getFactory().unwrap(SessionFactoryImplementor.class)
+                .getMappingMetamodel().getEntityDescriptor(User.class);
+        NaturalIdDataAccess naturalIds = persister.getNaturalIdCacheAccessStrategy();
+        if (naturalIds != null) {
+            naturalIds.evict(naturalIds.generateCacheKey(owner.getUsername(), persister, session));
+        }
+        return updated;
+    }
+}
@@ -0,0 +1,14 @@
+package com.bookstorage.repository;
+
+import com.bookstorage.entity.User;
+
+import java.util.Optional;
+
+/**
+ * Username lookups resolved through Hibernate's natural-id API, so they are served from the
+ * second-level cache instead of running a query.
+ */
+public interface UserNaturalIdRepository {
+
+    Optional<User> findByUsername(String username);
+}
@@ -5,19 +5,24 @@ import com.bookstorage.entity.UserRole;
 import com.bookstorage.entity.UserStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
-import java.util.Optional;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserNaturalIdRepository, UserBooksCountRepository {
+
+    String FILTER_CONDITION = "(:fullName IS NULL OR LOWER(u.fullName) LIKE LOWER(CONCAT('%', :fullName, '%'))) AND " +
+           "(:username IS NULL OR LOWER(u.username) LIKE LOWER(CONCAT('%', :username, '%'))) AND " +
+           "(:role IS NULL OR u.role = :role) AND " +
+           "(:status IS NULL OR u.status = :status)";
 
-    Optional<User> findByUsername(String username);
-    
     boolean existsByUsername(String username);
     
     List<User> findByRole(UserRole role);
@@ -27,20 +32,37 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("SELECT u FROM User u WHERE u.role = :role AND u.status = :status")
     List<User> findByRoleAndStatus(@Param("role") UserRole role, @Param("status") UserStatus status);
     
-    @Query("SELECT u FROM User u WHERE " +
-           "(:fullName IS NULL OR LOWER(u.fullName) LIKE LOWER(CONCAT('%', :fullName, '%'))) AND " +
-           "(:username IS NULL OR LOWER(u.username) LIKE LOWER(CONCAT('%', :username, '%'))) AND " +
-           "(:role IS NULL OR u.role = :role) AND " +
-           "(:status IS NULL OR u.status = :status)")
+    @Query("SELECT u FROM User u WHERE " + FILTER_CONDITION)
     Page<User> findByFilters(@Param("fullName") String fullName,
                             @Param("username") String username,
                             @Param("role") UserRole role,
                             @Param("status") UserStatus status,
                             Pageable pageable);
     
+    @Query("SELECT u FROM User u WHERE " + FILTER_CONDITION)
+    Slice<User> findSliceByFilters(@Param("fullName") String fullName,
+                                   @Param("username") String username,
+                                   @Param("role") UserRole role,
+                                   @Param("status") UserStatus status,
+                                   Pageable pageable);
+    
     @Query("SELECT COUNT(u) FROM User u WHERE u.role = :role")
     long countByRole(@Param("role") UserRole role);
     
     @Query("SELECT COUNT(u) FROM User u WHERE u.status = :status")
     long countByStatus(@Param("status") UserStatus status);
+    
+    @Query("SELECT u.id, u.tokenEpoch FROM User u WHERE u.tokenEpoch > 0")
+    List<Object[]> findNonZeroTokenEpochs();
+    
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE users u SET books_count = c.cnt FROM (" +
+                   "SELECT u2.id, COUNT(b.id) AS cnt FROM users u2 LEFT JOIN books b ON b.owner_id = u2.id GROUP BY u2.id" +
+                   ") c WHERE c.id = u.id AND u.books_count <> c.cnt", nativeQuery = true)
+    int reconcileBooksCounts();
+    
+    // Users whose profile photo was stored before the blob store
+    @Query("SELECT u.id FROM User u WHERE u.profilePhoto IS NOT NULL AND u.profilePhoto NOT LIKE 'blobs/%'")
+    List<Long> findIdsWithLegacyProfilePhoto();
 }
@@ -0,0 +1,384 @@
+package com.bookstorage.search;
+
+import com.bookstorage.entity.Book;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * In-memory inverted index over book title, author and description.
+ * Postings are sorted primitive int arrays of dense document ids, handed out in the order books are first
+ * indexed, so any long book id fits. A forward entry per book, in a plain array by document id, keeps its
+ * terms so updates and deletes can be applied incrementally, and so candidates can be verified without
+ * intersecting whole postings lists.
+ */
+@Component
+public class BookSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookSearchIndex.class);
+
+    public static final String SORT_RELEVANCE = "relevance";
+
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "createdAt", "id");
+
+    private static final byte TITLE_WEIGHT = 3;
+    private static final byte AUTHOR_WEIGHT = 2;
+    private static final byte DESCRIPTION_WEIGHT = 1;
+
+    private static final int INITIAL_DOCS = 1024;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private TreeMap<String, IntPostings> postings = new TreeMap<>();
+    private HashMap<Long, Integer> docIds = new HashMap<>();
+    private Doc[] docs = new Doc[INITIAL_DOCS];
+    private int docCount;
+    private int nextDocId;
+    private HashMap<Long, IntPostings> ownerDocs = new HashMap<>();
+
+    private volatile boolean enabled;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Replace the whole index with the documents produced by the loader, then start serving queries.
+     * Writers are blocked while the rebuild runs so no incremental update is lost.
+     */
+    public void rebuild(Consumer<BookSearchIndex> loader) {
+        lock.writeLock().lock();
+        try {
+            postings = new TreeMap<>();
+            docIds = new HashMap<>();
+            docs = new Doc[INITIAL_DOCS];
+            docCount = 0;
+            nextDocId = 0;
+            ownerDocs = new HashMap<>();
+            loader.accept(this);
+            enabled = true;
+            logger.info("🔎 Book search index built - {} books, {} terms, ~{} KB",
+                    docCount, postings.size(), estimatedBytes() / 1024);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void index(Book book) {
+        index(book.getId(), book.getOwner().getId(), book.getTitle(), book.getAuthor(), book.getDescription(),
+                book.getCreatedAt(), book.getUpdatedAt());
+    }
+
+    public void index(Long bookId, Long ownerId, String title, String author, String description,
+                      LocalDateTime createdAt, LocalDateTime updatedAt) {
+        TreeMap<String, Byte> weights = new TreeMap<>();
+        addTerms(weights, description, DESCRIPTION_WEIGHT);
+        addTerms(weights, author, AUTHOR_WEIGHT);
+        addTerms(weights, title, TITLE_WEIGHT);
+
+        lock.writeLock().lock();
+        try {
+            // a book keeps its document id across updates; new books get the next one
+            Integer existing = docIds.get(bookId);
+            int docId = existing != null ? existing : assignDocId(bookId);
+            removeInternal(docId);
+
+            String[] terms = new String[weights.size()];
+            byte[] termWeights = new byte[weights.size()];
+            int i = 0;
+            for (Map.Entry<String, Byte> entry : weights.entrySet()) {
+                IntPostings list = postings.computeIfAbsent(entry.getKey(), k -> new IntPostings());
+                list.add(docId);
+                // share the dictionary's String instance instead of keeping a copy per book
+                terms[i] = postings.ceilingKey(entry.getKey());
+                termWeights[i] = entry.getValue();
+                i++;
+            }
+
+            docs[docId] = new Doc(bookId, ownerId, terms, termWeights, TextNormalizer.normalize(title),
+                    TextNormalizer.normalize(author), createdAt, updatedAt);
+            docCount++;
+            ownerDocs.computeIfAbsent(ownerId, k -> new IntPostings()).add(docId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long bookId) {
+        lock.writeLock().lock();
+        try {
+            Integer docId = docIds.remove(bookId);
+            if (docId != null) {
+                removeInternal(docId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find one owner's books containing every query token as a word or word prefix and return
+     * the requested window of ids in sort order, plus the total number of matches.
+     */
+    public SearchResult searchOwner(Long ownerId, String query, Sort sort, long offset, int limit) {
+        return search(ownerId, query, comparator(sort), doc -> true, offset, limit);
+    }
+
+    /**
+     * Ids of one owner's matching books that come after the keyset position in (createdAt DESC, id DESC)
+     * order, for cursor paging; the same matches as {@link #searchOwner}.
+     */
+    public List<Long> searchOwnerAfter(Long ownerId, String query, LocalDateTime createdAt, Long id, int limit) {
+        return search(ownerId, query, comparator(NEWEST_FIRST), doc -> doc.createdAt != null
+                && (doc.createdAt.isBefore(createdAt) || doc.createdAt.isEqual(createdAt) && doc.bookId < id), 0, limit).ids();
+    }
+
+    private SearchResult search(Long ownerId, String query, Comparator<Hit> order, Predicate<Doc> filter, long offset, int limit) {
+        List<String> tokens = TextNormalizer.tokenize(query);
+        int window = (int) Math.min(Integer.MAX_VALUE - 1, offset + limit);
+
+        lock.readLock().lock();
+        try {
+            IntPostings owned = ownerDocs.get(ownerId);
+            if (owned == null || tokens.isEmpty()) {
+                return new SearchResult(List.of(), 0);
+            }
+
+            // Keep only the best `window` hits: the heap's head is the worst one retained
+            PriorityQueue<Hit> top = new PriorityQueue<>(Math.max(1, Math.min(window, 1024)), order.reversed());
+            int total = 0;
+            List<IntPostings> drivers = drivers(owned, tokens);
+            for (int d = 0; d < drivers.size(); d++) {
+                IntPostings list = drivers.get(d);
+                for (int i = 0; i < list.size(); i++) {
+                    int docId = list.get(i);
+                    // a book under several terms of the driving prefix is visited in the first of them only
+                    if (listedBefore(drivers, d, docId)) {
+                        continue;
+                    }
+                    Doc doc = docs[docId];
+                    if (doc == null || !doc.ownerId.equals(ownerId) || !filter.test(doc)) {
+                        continue;
+                    }
+                    double score = score(doc, tokens);
+                    if (score <= 0) {
+                        continue;
+                    }
+                    total++;
+                    Hit hit = new Hit(doc, score);
+                    if (top.size() < window) {
+                        top.add(hit);
+                    } else if (window > 0 && order.compare(hit, top.peek()) < 0) {
+                        top.poll();
+                        top.add(hit);
+                    }
+                }
+            }
+
+            List<Hit> sorted = new ArrayList<>(top);
+            sorted.sort(order);
+            List<Long> ids = new ArrayList<>();
+            for (int i = (int) Math.min(offset, sorted.size()); i < sorted.size(); i++) {
+                ids.add(sorted.get(i).doc.bookId);
+            }
+            return new SearchResult(ids, total);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        lock.readLock().lock();
+        try {
+            long postingEntries = 0;
+            for (IntPostings list : postings.values()) {
+                postingEntries += list.size();
+            }
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("enabled", enabled);
+            stats.put("books", docCount);
+            stats.put("terms", postings.size());
+            stats.put("postings", postingEntries);
+            stats.put("owners", ownerDocs.size());
+            stats.put("estimatedBytes", estimatedBytes());
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rough retained heap size of the index, for sizing -Xmx.
+     */
+    public long estimatedBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 0;
+            for (Map.Entry<String, IntPostings> entry : postings.entrySet()) {
+                // tree map entry + string + postings
+                bytes += 40 + 40 + 2L * entry.getKey().length() + entry.getValue().estimatedBytes();
+            }
+            // forward array slots, including those of removed books until the next rebuild
+            bytes += 16 + 8L * docs.length;
+            for (int docId = 0; docId < nextDocId; docId++) {
+                Doc doc = docs[docId];
+                if (doc == null) {
+                    continue;
+                }
+                // id map entry + boxed key and value + doc + term reference and weight arrays + normalized sort keys
+                bytes += 48 + 24 + 16 + 64 + 16 + 8L * doc.terms.length + 16 + doc.weights.length
+                        + 80 + 2L * (doc.title.length() + doc.author.length());
+            }
+            for (IntPostings list : ownerDocs.values()) {
+                bytes += 48 + 24 + list.estimatedBytes();
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Pick the cheapest driver: the owner's own books, or the postings of the rarest query token
+     * (every term it prefixes) when those are smaller. Candidates are read straight from these lists
+     * and verified later, so no intersection or candidate list is materialized.
+     */
+    private List<IntPostings> drivers(IntPostings owned, List<String> tokens) {
+        List<IntPostings> rarest = null;
+        long rarestSize = owned.size();
+        for (String token : tokens) {
+            List<IntPostings> lists = new ArrayList<>();
+            long size = 0;
+            for (IntPostings list : prefixed(token).values()) {
+                lists.add(list);
+                size += list.size();
+                if (size >= rarestSize) {
+                    break;
+                }
+            }
+            if (size < rarestSize) {
+                rarest = lists;
+                rarestSize = size;
+            }
+        }
+        return rarest != null ? rarest : List.of(owned);
+    }
+
+    private static boolean listedBefore(List<IntPostings> drivers, int driver, int docId) {
+        for (int i = 0; i < driver; i++) {
+            if (drivers.get(i).contains(docId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int assignDocId(Long bookId) {
+        int docId = nextDocId++;
+        if (docId == docs.length) {
+            docs = Arrays.copyOf(docs, docs.length * 2);
+        }
+        docIds.put(bookId, docId);
+        return docId;
+    }
+
+    private SortedMap<String, IntPostings> prefixed(String prefix) {
+        return postings.subMap(prefix, prefix + Character.MAX_VALUE);
+    }
+
+    /**
+     * Sum over query tokens of the best matching term weight; an exact word counts double a prefix.
+     * Returns 0 when any token has no match.
+     */
+    private static double score(Doc doc, List<String> tokens) {
+        double score = 0;
+        for (String token : tokens) {
+            int index = Arrays.binarySearch(doc.terms, token);
+            if (index >= 0) {
+                score += 2 * doc.weights[index];
+                continue;
+            }
+            double best = 0;
+            for (int i = -index - 1; i < doc.terms.length && doc.terms[i].startsWith(token); i++) {
+                best = Math.max(best, doc.weights[i]);
+            }
+            if (best == 0) {
+                return 0;
+            }
+            score += best;
+        }
+        return score;
+    }
+
+    private static Comparator<Hit> comparator(Sort sort) {
+        Comparator<Hit> comparator = null;
+        for (Sort.Order order : sort) {
+            Comparator<Hit> next = switch (order.getProperty()) {
+                case SORT_RELEVANCE -> Comparator.comparingDouble(Hit::score);
+                case "title" -> Comparator.comparing(hit -> hit.doc.title);
+                case "author" -> Comparator.comparing(hit -> hit.doc.author);
+                case "createdAt" -> Comparator.comparing(hit -> hit.doc.createdAt,
+                        Comparator.nullsFirst(Comparator.naturalOrder()));
+                case "updatedAt" -> Comparator.comparing(hit -> hit.doc.updatedAt,
+                        Comparator.nullsFirst(Comparator.naturalOrder()));
+                case "id" -> Comparator.comparingLong(hit -> hit.doc.bookId);
+                default -> throw new IllegalArgumentException("Unsupported sort property: " + order.getProperty());
+            };
+            if (order.isDescending()) {
+                next = next.reversed();
+            }
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        // newest first on ties, so paging is stable
+        Comparator<Hit> tieBreak = Comparator.comparingLong((Hit hit) -> hit.doc.bookId).reversed();
+        return comparator == null ? tieBreak : comparator.thenComparing(tieBreak);
+    }
+
+    private static void addTerms(Map<String, Byte> weights, String text, byte weight) {
+        for (String token : TextNormalizer.tokenize(text)) {
+            weights.merge(token, weight, (a, b) -> (byte) Math.max(a, b));
+        }
+    }
+
+    private void removeInternal(int docId) {
+        Doc doc = docs[docId];
+        if (doc == null) {
+            return;
+        }
+        docs[docId] = null;
+        docCount--;
+        for (String term : doc.terms) {
+            IntPostings list = postings.get(term);
+            if (list != null) {
+                list.remove(docId);
+                if (list.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        IntPostings owned = ownerDocs.get(doc.ownerId);
+        if (owned != null) {
+            owned.remove(docId);
+            if (owned.isEmpty()) {
+                ownerDocs.remove(doc.ownerId);
+            }
+        }
+    }
+
+    public record SearchResult(List<Long> ids, long total) {
+    }
+
+    private record Doc(long bookId, Long ownerId, String[] terms, byte[] weights, String title, String author,
+                       LocalDateTime createdAt, LocalDateTime updatedAt) {
+    }
+
+    private record Hit(Doc doc, double score) {
+    }
+}
@@ -0,0 +1,243 @@
+package com.bookstorage.search;
+
+import com.bookstorage.dto.BookSuggestion;
+import org.springframework.stereotype.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Per-owner typeahead over normalized book titles and author names.
+ * Each phrase is keyed once for every word it contains, so "war and pe" and "pe" both reach "War and Peace".
+ * Reads binary-search an immutable sorted snapshot without locking; writes update the owner's
+ * counted entries and republish that owner's snapshot.
+ */
+@Component
+public class SuggestionIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(SuggestionIndex.class);
+
+    private final Object writeLock = new Object();
+
+    // guarded by writeLock
+    private final Map<Long, TreeMap<String, Entry>> entries = new HashMap<>();
+    private boolean rebuilding;
+
+    private final Map<Long, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    public void rebuild(Consumer<SuggestionIndex> loader) {
+        synchronized (writeLock) {
+            entries.clear();
+            snapshots.clear();
+            rebuilding = true;
+            try {
+                loader.accept(this);
+            } finally {
+                rebuilding = false;
+            }
+            long keys = 0;
+            for (Map.Entry<Long, TreeMap<String, Entry>> owner : entries.entrySet()) {
+                Snapshot snapshot = Snapshot.of(owner.getValue());
+                snapshots.put(owner.getKey(), snapshot);
+                keys += snapshot.keys.length;
+            }
+            logger.info("🔎 Suggestion index built - {} owners, {} keys", entries.size(), keys);
+        }
+    }
+
+    public void add(Long ownerId, String title, String author) {
+        synchronized (writeLock) {
+            TreeMap<String, Entry> owned = entries.computeIfAbsent(ownerId, k -> new TreeMap<>());
+            adjust(owned, title, BookSuggestion.TYPE_TITLE, 1);
+            adjust(owned, author, BookSuggestion.TYPE_AUTHOR, 1);
+            publish(ownerId, owned);
+        }
+    }
+
+    public void remove(Long ownerId, String title, String author) {
+        synchronized (writeLock) {
+            TreeMap<String, Entry> owned = entries.get(ownerId);
+            if (owned == null) {
+                return;
+            }
+            adjust(owned, title, BookSuggestion.TYPE_TITLE, -1);
+            adjust(owned, author, BookSuggestion.TYPE_AUTHOR, -1);
+            publish(ownerId, owned);
+        }
+    }
+
+    public void replace(Long ownerId, String oldTitle, String oldAuthor, String title, String author) {
+        if (Objects.equals(oldTitle, title) && Objects.equals(oldAuthor, author)) {
+            return;
+        }
+        synchronized (writeLock) {
+            TreeMap<String, Entry> owned = entries.computeIfAbsent(ownerId, k -> new TreeMap<>());
+            adjust(owned, oldTitle, BookSuggestion.TYPE_TITLE, -1);
+            adjust(owned, oldAuthor, BookSuggestion.TYPE_AUTHOR, -1);
+            adjust(owned, title, BookSuggestion.TYPE_TITLE, 1);
+            adjust(owned, author, BookSuggestion.TYPE_AUTHOR, 1);
+            publish(ownerId, owned);
+        }
+    }
+
+    /**
+     * Top completions for the prefix, most common first, then shortest and alphabetical.
+     */
+    public List<BookSuggestion> suggest(Long ownerId, String prefix, int limit) {
+        Snapshot snapshot = snapshots.get(ownerId);
+        String normalized = String.join(" ", TextNormalizer.tokenize(prefix));
+        if (snapshot == null || normalized.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        // keep a trailing space so "war " only completes phrases with another word after "war"
+        if (!prefix.isEmpty() && !Character.isLetterOrDigit(prefix.charAt(prefix.length() - 1))) {
+            normalized += " ";
+        }
+
+        int from = snapshot.lowerBound(normalized);
+        PriorityQueue<Entry> top = new PriorityQueue<>(limit + 1, RANKING.reversed());
+        Set<Entry> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = from; i < snapshot.keys.length && snapshot.keys[i].startsWith(normalized); i++) {
+            Entry entry = snapshot.entries[i];
+            if (!seen.add(entry)) {
+                continue;
+            }
+            top.add(entry);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+
+        List<Entry> ranked = new ArrayList<>(top);
+        ranked.sort(RANKING);
+        List<BookSuggestion> suggestions = new ArrayList<>(ranked.size());
+        for (Entry entry : ranked) {
+            suggestions.add(new BookSuggestion(entry.label, entry.type, entry.books));
+        }
+        return suggestions;
+    }
+
+    private static final Comparator<Entry> RANKING = Comparator.comparingInt((Entry entry) -> entry.books).reversed()
+            .thenComparingInt(entry -> entry.phrase.length())
+            .thenComparing(entry -> entry.phrase)
+            .thenComparing(entry -> entry.type);
+
+    private static void adjust(TreeMap<String, Entry> owned, String text, String type, int delta) {
+        List<String> tokens = TextNormalizer.tokenize(text);
+        if (tokens.isEmpty()) {
+            return;
+        }
+        String phrase = String.join(" ", tokens);
+        String id = type + '\u0000' + phrase;
+        Entry entry = owned.get(id);
+        if (entry == null) {
+            if (delta <= 0) {
+                return;
+            }
+            entry = new Entry(phrase, text.trim(), type, tokens.size());
+            owned.put(id, entry);
+        }
+        entry.books += delta;
+        if (entry.books <= 0) {
+            owned.remove(id);
+        }
+    }
+
+    private void publish(Long ownerId, TreeMap<String, Entry> owned) {
+        if (rebuilding) {
+            // snapshots are published once the whole scan is loaded
+            return;
+        }
+        if (owned.isEmpty()) {
+            entries.remove(ownerId);
+            snapshots.remove(ownerId);
+        } else {
+            snapshots.put(ownerId, Snapshot.of(owned));
+        }
+    }
+
+    /**
+     * A distinct title or author name. Counts only change under the write lock; snapshots copy them.
+     */
+    private static final class Entry {
+        private final String phrase;
+        private final String label;
+        private final String type;
+        private final int words;
+        private int books;
+
+        private Entry(String phrase, String label, String type, int words) {
+            this.phrase = phrase;
+            this.label = label;
+            this.type = type;
+            this.words = words;
+        }
+
+        private Entry copy() {
+            Entry copy = new Entry(phrase, label, type, words);
+            copy.books = books;
+            return copy;
+        }
+    }
+
+    /**
+     * Sorted word-start keys with the entry each one completes to.
+     */
+    private static final class Snapshot {
+        private final String[] keys;
+        private final Entry[] entries;
+
+        private Snapshot(String[] keys, Entry[] entries) {
+            this.keys = keys;
+            this.entries = entries;
+        }
+
+        static Snapshot of(TreeMap<String, Entry> owned) {
+            int size = 0;
+            for (Entry entry : owned.values()) {
+                size += entry.words;
+            }
+            String[] keys = new String[size];
+            Entry[] targets = new Entry[size];
+            Integer[] order = new Integer[size];
+            int i = 0;
+            for (Entry live : owned.values()) {
+                Entry entry = live.copy();
+                int start = 0;
+                for (int word = 0; word < entry.words; word++) {
+                    keys[i] = entry.phrase.substring(start);
+                    targets[i] = entry;
+                    order[i] = i;
+                    i++;
+                    start = entry.phrase.indexOf(' ', start) + 1;
+                }
+            }
+            Arrays.sort(order, Comparator.comparing(index -> keys[index]));
+
+            String[] sortedKeys = new String[size];
+            Entry[] sortedEntries = new Entry[size];
+            for (int j = 0; j < size; j++) {
+                sortedKeys[j] = keys[order[j]];
+                sortedEntries[j] = targets[order[j]];
+            }
+            return new Snapshot(sortedKeys, sortedEntries);
+        }
+
+        int lowerBound(String prefix) {
+            int low = 0;
+            int high = keys.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (keys[mid].compareTo(prefix) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.bookstorage.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission control for the /auth endpoints: one token bucket per client IP and one per username.
+ */
+@Component
+public class AuthRateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthRateLimiter.class);
+
+    private final boolean enabled;
+    private final TokenBucketRateLimiter ipLimiter;
+    private final TokenBucketRateLimiter usernameLimiter;
+
+    private final LongAdder rejectedByIp = new LongAdder();
+    private final LongAdder rejectedByUsername = new LongAdder();
+
+    public AuthRateLimiter(@Value("${security.rate-limit.enabled:true}") boolean enabled,
+                           @Value("${security.rate-limit.ip.capacity:20}") long ipCapacity,
+                           @Value("${security.rate-limit.ip.refill-per-minute:20}") long ipRefillPerMinute,
+                           @Value("${security.rate-limit.username.capacity:5}") long usernameCapacity,
+                           @Value("${security.rate-limit.username.refill-per-minute:5}") long usernameRefillPerMinute,
+                           @Value("${security.rate-limit.max-buckets:100000}") int maxBuckets,
+                           @Value("${security.rate-limit.idle-timeout:600000}") long idleTimeoutMillis) {
+        this.enabled = enabled;
+        this.ipLimiter = new TokenBucketRateLimiter(ipCapacity, ipRefillPerMinute, maxBuckets, idleTimeoutMillis);
+        this.usernameLimiter = new TokenBucketRateLimiter(usernameCapacity, usernameRefillPerMinute, maxBuckets, idleTimeoutMillis);
+    }
+
+    /**
+     * @return 0 if admitted, otherwise the Retry-After value in seconds
+     */
+    public long acquireForIp(String ip) {
+        if (!enabled || ip == null) {
+            return 0;
+        }
+        long retryAfter = ipLimiter.tryAcquire(ip);
+        if (retryAfter > 0) {
+            rejectedByIp.increment();
+        }
+        return retryAfter;
+    }
+
+    /**
+     * @return 0 if admitted, otherwise the Retry-After value in seconds
+     */
+    public long acquireForUsername(String username) {
+        if (!enabled || username == null) {
+            return 0;
+        }
+        long retryAfter = usernameLimiter.tryAcquire(username.trim().toLowerCase(Locale.ROOT));
+        if (retryAfter > 0) {
+            rejectedByUsername.increment();
+        }
+        return retryAfter;
+    }
+
+    @Scheduled(fixedDelayString = "${security.rate-limit.sweep-interval:60000}")
+    public void evictIdleBuckets() {
+        int evicted = ipLimiter.evictIdle() + usernameLimiter.evictIdle();
+        if (evicted > 0) {
+            logger.debug("Evicted {} idle rate limit buckets", evicted);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("ipBuckets", ipLimiter.size());
+        stats.put("usernameBuckets", usernameLimiter.size());
+        stats.put("rejectedByIp", rejectedByIp.sum());
+        stats.put("rejectedByUsername", rejectedByUsername.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,33 @@
+package com.bookstorage.security;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * BCryptPasswordEncoder that asks for a rehash whenever the stored cost differs from the configured
+ * strength. The stock encoder only upgrades weaker hashes, so lowering the strength would leave every
+ * existing hash at the old, slower cost.
+ */
+public class ExactStrengthBCryptPasswordEncoder extends BCryptPasswordEncoder {
+
+    private static final Pattern BCRYPT_PATTERN = Pattern.compile("\\A\\$2([ayb])?\\$(\\d\\d)\\$[./0-9A-Za-z]{53}");
+
+    private final int strength;
+
+    public ExactStrengthBCryptPasswordEncoder(int strength) {
+        super(strength);
+        this.strength = strength;
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null || encodedPassword.isEmpty()) {
+            return false;
+        }
+        Matcher matcher = BCRYPT_PATTERN.matcher(encodedPassword);
+        // not a bcrypt hash: matches() rejects it anyway, so there is no login to rehash on
+        return matcher.matches() && Integer.parseInt(matcher.group(2)) != strength;
+    }
+}
@@ -5,8 +5,10 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
@@ -27,6 +29,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     
     @Autowired
     private UserDetailsService userDetailsService;
+
+    @Autowired
+    private TokenEpochRegistry tokenEpochRegistry;
+
+    @Value("${security.jwt.stateless:false}")
+    private boolean stateless;
     
     public JwtAuthenticationFilter() {
         // Default constructor for Spring
@@ -40,25 +48,38 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         final String authorizationHeader = request.getHeader("Authorization");
         final String requestURI = request.getRequestURI();
 
-        String username = null;
-        String jwt = null;
+        VerifiedToken token = null;
 
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            jwt = authorizationHeader.substring(7);
+            String jwt = authorizationHeader.substring(7);
             try {
-                username = jwtUtil.extractUsername(jwt);
-                logger.debug("JWT token extracted for user: {} on URI: {}", username, requestURI);
+                token = jwtUtil.verify(jwt);
+                logger.debug("JWT token verified for user: {} on URI: {}", token.getUsername(), requestURI);
             } catch (Exception e) {
-                logger.error("Error extracting username from JWT on URI: {} - {}", requestURI, e.getMessage());
+                logger.error("Error verifying JWT on URI: {} - {}", requestURI, e.getMessage());
             }
         } else {
             logger.debug("No Authorization header found for URI: {}", requestURI);
         }
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+        if (token != null && token.getUsername() != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            String username = token.getUsername();
+            UserDetails userDetails;
+            boolean valid;
+
+            if (stateless && token.isSelfContained()) {
+                // Stateless mode: the principal comes from the token, revocation from the epoch table
+                userDetails = User.withUsername(username)
+                        .password("")
+                        .authorities(token.getRole())
+                        .build();
+                valid = tokenEpochRegistry.isCurrent(token.getUserId(), token.getEpoch());
+            } else {
+                userDetails = this.userDetailsService.loadUserByUsername(username);
+                valid = jwtUtil.validateToken(token, userDetails);
+            }
 
-            if (jwtUtil.validateToken(jwt, userDetails)) {
+            if (valid) {
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                         userDetails, null, userDetails.getAuthorities());
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -2,6 +2,8 @@ package com.bookstorage.security;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import com.bookstorage.entity.User;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
@@ -19,14 +21,35 @@ public class JwtUtil {
 
     private static final Logger logger = LoggerFactory.getLogger(JwtUtil.class);
 
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLE = "role";
+    public static final String CLAIM_EPOCH = "epoch";
+
     @Value("${jwt.secret}")
     private String secret;
 
     @Value("${jwt.expiration}")
     private Long expiration;
 
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+    private SecretKey signingKey;
+
+    private JwtParser parser;
+
+    @PostConstruct
+    void init() {
+        this.signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        this.parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
+    }
+
+    /**
+     * Parse and verify the token once (signature and expiry).
+     *
+     * @throws JwtException if the token is malformed, tampered with or expired
+     */
+    public VerifiedToken verify(String token) {
+        return new VerifiedToken(extractAllClaims(token));
     }
 
     public String extractUsername(String token) {
@@ -43,15 +66,7 @@ public class JwtUtil {
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-    }
-
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        return parser.parseSignedClaims(token).getPayload();
     }
 
     public String generateToken(UserDetails userDetails) {
@@ -67,30 +82,50 @@ public class JwtUtil {
         return token;
     }
 
+    /**
+     * Generate a token that also carries the user id, role and token epoch,
+     * so it can be authenticated without loading the user.
+     */
+    public String generateToken(User user) {
+        logger.debug("Generating JWT token for user: {}", user.getUsername());
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(CLAIM_USER_ID, user.getId());
+        claims.put(CLAIM_ROLE, user.getRole().name());
+        claims.put(CLAIM_EPOCH, user.getTokenEpoch() != null ? user.getTokenEpoch() : 0);
+        String token = createToken(claims, user.getUsername());
+        logger.debug("JWT token generated successfully for user: {}", user.getUsername());
+        return token;
+    }
+
     private String createToken(Map<String, Object> claims, String subject) {
         return Jwts.builder()
                 .setClaims(claims)
                 .setSubject(subject)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        boolean isValid = (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
-        logger.debug("JWT token validation for user {}: {}", username, isValid);
+    public boolean validateToken(VerifiedToken token, UserDetails userDetails) {
+        boolean isValid = token.getUsername().equals(userDetails.getUsername())
+                && token.getExpiration().after(new Date());
+        logger.debug("JWT token validation for user {}: {}", token.getUsername(), isValid);
         return isValid;
     }
 
+    public Boolean validateToken(String token, UserDetails userDetails) {
+        try {
+            return validateToken(verify(token), userDetails);
+        } catch (JwtException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
     public Boolean validateToken(String token) {
         try {
-            Jwts.parser()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token);
-            return !isTokenExpired(token);
+            verify(token);
+            return true;
         } catch (JwtException | IllegalArgumentException e) {
             return false;
         }
@@ -0,0 +1,154 @@
+package com.bookstorage.security;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Lock-free token buckets keyed by an arbitrary string, held in a bounded map.
+ * A new key that arrives while the map is full makes room first: buckets that have refilled are dropped, as
+ * they hold nothing a new bucket would not, and if that is not enough so are the fullest of the rest. Every
+ * key keeps a bucket of its own, so flooding the map with made-up keys cannot lock other clients out.
+ */
+public class TokenBucketRateLimiter {
+
+    private final long capacity;
+    private final double refillPerNano;
+    private final int maxBuckets;
+    private final long idleNanos;
+
+    private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    // One thread makes room at a time; the others insert meanwhile, overshooting the bound by at most their number
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    public TokenBucketRateLimiter(long capacity, long refillPerMinute, int maxBuckets, long idleTimeoutMillis) {
+        this.capacity = capacity;
+        this.refillPerNano = refillPerMinute / (double) TimeUnit.MINUTES.toNanos(1);
+        this.maxBuckets = maxBuckets;
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+    }
+
+    /**
+     * Take one token for the key.
+     *
+     * @return 0 if the call is admitted, otherwise the number of seconds until a token is available
+     */
+    public long tryAcquire(String key) {
+        long now = System.nanoTime();
+        Bucket bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxBuckets) {
+                makeRoom(now);
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new Bucket(capacity, now));
+        }
+        return bucket.tryAcquire(now);
+    }
+
+    /**
+     * Drop buckets that have not been touched for the idle timeout; they would be full again anyway.
+     */
+    public int evictIdle() {
+        long now = System.nanoTime();
+        int evicted = 0;
+        Iterator<Map.Entry<String, Bucket>> iterator = buckets.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next().getValue().lastAccessNanos() > idleNanos) {
+                iterator.remove();
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Free a hundredth of the map in one pass, so the scan is paid once per many inserts: every refilled bucket,
+     * then the fullest others, whose keys lose the least by starting over.
+     */
+    private void makeRoom(long now) {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            if (buckets.size() < maxBuckets) {
+                return;
+            }
+            int target = Math.max(1, maxBuckets / 100);
+            int evicted = 0;
+            // the fullest candidates seen so far, emptiest on top
+            PriorityQueue<Candidate> fullest = new PriorityQueue<>(Comparator.comparingDouble(Candidate::tokens));
+            Iterator<Map.Entry<String, Bucket>> iterator = buckets.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Bucket> entry = iterator.next();
+                double tokens = entry.getValue().tokens(now);
+                if (tokens >= capacity) {
+                    iterator.remove();
+                    evicted++;
+                } else if (evicted < target) {
+                    fullest.add(new Candidate(entry.getKey(), entry.getValue(), tokens));
+                    if (fullest.size() > target) {
+                        fullest.poll();
+                    }
+                }
+            }
+            while (evicted < target && !fullest.isEmpty()) {
+                Candidate candidate = fullest.poll();
+                if (buckets.remove(candidate.key(), candidate.bucket())) {
+                    evicted++;
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    private final class Bucket {
+
+        private final AtomicReference<State> state;
+
+        Bucket(long tokens, long now) {
+            this.state = new AtomicReference<>(new State(tokens, now));
+        }
+
+        long tryAcquire(long now) {
+            while (true) {
+                State current = state.get();
+                double refilled = Math.min(capacity, current.tokens + (now - current.refilledAt) * refillPerNano);
+                long refilledAt = Math.max(now, current.refilledAt);
+
+                if (refilled < 1.0) {
+                    double missingNanos = (1.0 - refilled) / refillPerNano;
+                    return Math.max(1, (long) Math.ceil(missingNanos / TimeUnit.SECONDS.toNanos(1)));
+                }
+                if (state.compareAndSet(current, new State(refilled - 1.0, refilledAt))) {
+                    return 0;
+                }
+            }
+        }
+
+        double tokens(long now) {
+            State current = state.get();
+            return Math.min(capacity, current.tokens + Math.max(0, now - current.refilledAt) * refillPerNano);
+        }
+
+        long lastAccessNanos() {
+            return state.get().refilledAt;
+        }
+    }
+
+    private record State(double tokens, long refilledAt) {
+    }
+
+    private record Candidate(String key, Bucket bucket, double tokens) {
+    }
+}
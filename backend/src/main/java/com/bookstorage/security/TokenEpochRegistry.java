@@ -0,0 +1,58 @@
+package com.bookstorage.security;
+
+import com.bookstorage.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory user id -> token epoch table used to revoke stateless tokens.
+ * Only users whose epoch was ever bumped are stored; every other user is implicitly at epoch 0.
+ */
+@Component
+public class TokenEpochRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenEpochRegistry.class);
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final ConcurrentHashMap<Long, Integer> epochs = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void load() {
+        List<Object[]> rows = userRepository.findNonZeroTokenEpochs();
+        for (Object[] row : rows) {
+            epochs.put((Long) row[0], (Integer) row[1]);
+        }
+        logger.info("Token epoch registry loaded with {} revoked users", epochs.size());
+    }
+
+    public int currentEpoch(Long userId) {
+        return epochs.getOrDefault(userId, 0);
+    }
+
+    public boolean isCurrent(Long userId, int tokenEpoch) {
+        return userId != null && currentEpoch(userId) == tokenEpoch;
+    }
+
+    /**
+     * Record the epoch just persisted for the user; never moves an epoch backwards.
+     */
+    public void update(Long userId, Integer epoch) {
+        if (userId == null || epoch == null || epoch <= 0) {
+            return;
+        }
+        epochs.merge(userId, epoch, Math::max);
+        logger.debug("Token epoch for user {} is now {}", userId, epoch);
+    }
+
+    public int size() {
+        return epochs.size();
+    }
+}
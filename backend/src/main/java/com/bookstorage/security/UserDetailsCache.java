@@ -0,0 +1,155 @@
+package com.bookstorage.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded, TTL-evicting cache of resolved principals keyed by username.
+ * Entries must be invalidated explicitly whenever a user's credentials, status or username change.
+ */
+@Component
+public class UserDetailsCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserDetailsCache.class);
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final Map<String, Entry> entries;
+
+    // A token per load in flight; invalidation removes it, so a load that read the user before the change
+    // does not put the stale principal back. Guarded by entries.
+    private final Map<String, Object> loading = new HashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public UserDetailsCache(@Value("${security.user-cache.max-size:10000}") int maxSize,
+                            @Value("${security.user-cache.ttl:60000}") long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > UserDetailsCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        logger.info("UserDetails cache initialized - max size: {}, ttl: {} ms", maxSize, ttlMillis);
+    }
+
+    /**
+     * Return the cached principal for the username, loading and caching it on a miss.
+     * A fresh copy is returned each time so that credential erasure by the caller never touches the cached entry.
+     */
+    public UserDetails get(String username, Function<String, UserDetails> loader) {
+        long now = System.currentTimeMillis();
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(username);
+            if (entry != null && entry.expiresAt <= now) {
+                entries.remove(username);
+                evictions.increment();
+                entry = null;
+            }
+        }
+
+        if (entry != null) {
+            hits.increment();
+            return copy(entry.userDetails);
+        }
+
+        misses.increment();
+        Object token = new Object();
+        synchronized (entries) {
+            loading.put(username, token);
+        }
+        UserDetails cached;
+        try {
+            cached = copy(loader.apply(username));
+        } catch (RuntimeException e) {
+            synchronized (entries) {
+                loading.remove(username, token);
+            }
+            throw e;
+        }
+        synchronized (entries) {
+            if (loading.remove(username, token)) {
+                entries.put(username, new Entry(cached, now + ttlMillis));
+            }
+        }
+        return copy(cached);
+    }
+
+    public void invalidate(String username) {
+        if (username == null) {
+            return;
+        }
+        synchronized (entries) {
+            entries.remove(username);
+            loading.remove(username);
+        }
+        logger.debug("UserDetails cache invalidated for user: {}", username);
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+            loading.clear();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = getHits();
+        long missCount = getMisses();
+        long total = hitCount + missCount;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size());
+        stats.put("maxSize", maxSize);
+        stats.put("ttlMillis", ttlMillis);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("evictions", getEvictions());
+        stats.put("hitRatio", total == 0 ? 0.0 : (double) hitCount / total);
+        return stats;
+    }
+
+    private static UserDetails copy(UserDetails userDetails) {
+        return User.withUserDetails(userDetails).build();
+    }
+
+    private record Entry(UserDetails userDetails, long expiresAt) {
+    }
+}
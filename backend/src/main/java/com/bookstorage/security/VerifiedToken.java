@@ -0,0 +1,64 @@
+package com.bookstorage.security;
+
+import io.jsonwebtoken.Claims;
+
+import java.util.Date;
+
+/**
+ * Immutable result of a single signature and expiry check on a JWT.
+ */
+public final class VerifiedToken {
+
+    private final String username;
+    private final Date issuedAt;
+    private final Date expiration;
+    private final Long userId;
+    private final String role;
+    private final Integer epoch;
+    private final Claims claims;
+
+    VerifiedToken(Claims claims) {
+        this.claims = claims;
+        this.username = claims.getSubject();
+        this.issuedAt = claims.getIssuedAt();
+        this.expiration = claims.getExpiration();
+        this.userId = claims.get(JwtUtil.CLAIM_USER_ID, Long.class);
+        this.role = claims.get(JwtUtil.CLAIM_ROLE, String.class);
+        this.epoch = claims.get(JwtUtil.CLAIM_EPOCH, Integer.class);
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public Date getIssuedAt() {
+        return issuedAt != null ? new Date(issuedAt.getTime()) : null;
+    }
+
+    public Date getExpiration() {
+        return expiration != null ? new Date(expiration.getTime()) : null;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public Integer getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Whether the token carries everything needed to authenticate without a user lookup.
+     */
+    public boolean isSelfContained() {
+        return username != null && userId != null && role != null && epoch != null;
+    }
+
+    public <T> T getClaim(String name, Class<T> type) {
+        return claims.get(name, type);
+    }
+}
@@ -0,0 +1,224 @@
+package com.bookstorage.service;
+
+import com.bookstorage.entity.Book;
+import com.bookstorage.entity.User;
+import com.bookstorage.repository.BookRepository;
+import com.bookstorage.repository.UploadReferenceRepository;
+import com.bookstorage.repository.UserRepository;
+import com.bookstorage.service.FileMetadataIndex.FileMetadata;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Moves files uploaded before the blob store into it and rewrites the imageUrl / contentUrl / profilePhoto
+ * values that point at them. Each file is hard-linked into the store before its reference is switched, and the
+ * switch moves updated_at so ETags built from it change and revalidating clients get the new URL. The old file
+ * is kept for file.blob-migration.legacy-retention after the switch, so pages and clients still holding the old
+ * URL keep working meanwhile; pending deletes live in memory, so a restart leaves those files on disk. A reference
+ * is switched only if it still holds the old path, so an upload the owner makes meanwhile wins. Missing files
+ * are left alone. Safe to run again; already converted references are skipped.
+ */
+@Service
+public class BlobMigrationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlobMigrationService.class);
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private FileMetadataIndex fileMetadataIndex;
+
+    @Autowired
+    private BookService bookService;
+
+    @Autowired
+    private UploadReferenceRepository uploadReferenceRepository;
+
+    @Value("${file.blob-migration.legacy-retention:86400000}")
+    private long legacyRetention;
+
+    // old files of switched references, oldest first
+    private final Queue<PendingDelete> pendingDeletes = new ConcurrentLinkedQueue<>();
+
+    public Map<String, Object> migrateLegacyUploads() {
+        Migration migration = new Migration();
+
+        for (Long bookId : bookRepository.findIdsWithLegacyUploads()) {
+            try {
+                migrateBook(bookId, migration);
+            } catch (Exception e) {
+                migration.failed++;
+                logger.warn("📁 Uploads of book {} could not be migrated - {}", bookId, e.getMessage());
+            }
+        }
+        for (Long userId : userRepository.findIdsWithLegacyProfilePhoto()) {
+            try {
+                migrateUser(userId, migration);
+            } catch (Exception e) {
+                migration.failed++;
+                logger.warn("📁 Profile photo of user {} could not be migrated - {}", userId, e.getMessage());
+            }
+        }
+
+        logger.info("📁 Blob migration finished - {} files converted ({} already stored), {} missing, {} failed",
+                migration.converted, migration.deduplicated, migration.missing, migration.failed);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("books", migration.books);
+        result.put("users", migration.users);
+        result.put("filesConverted", migration.converted);
+        result.put("filesDeduplicated", migration.deduplicated);
+        result.put("bytesReclaimed", migration.bytesReclaimed);
+        result.put("filesMissing", migration.missing);
+        result.put("filesSuperseded", migration.superseded);
+        result.put("failed", migration.failed);
+        result.put("legacyFilesPendingDelete", pendingDeletes.size());
+        return result;
+    }
+
+    /**
+     * Delete the old files whose retention after their reference switch has run out.
+     */
+    @Scheduled(fixedDelayString = "${file.blob-migration.sweep-interval:600000}")
+    public void deleteRetiredLegacyFiles() {
+        long now = System.currentTimeMillis();
+        int deleted = 0;
+        PendingDelete pending;
+        while ((pending = pendingDeletes.peek()) != null && pending.deleteAt() <= now) {
+            pendingDeletes.poll();
+            try {
+                fileStorageService.delete(pending.path());
+                deleted++;
+            } catch (IOException e) {
+                logger.warn("📁 Migrated file {} could not be removed - {}", pending.path(), e.getMessage());
+            }
+        }
+        if (deleted > 0) {
+            logger.info("📁 Removed {} files replaced by blob references", deleted);
+        }
+    }
+
+    private void migrateBook(Long bookId, Migration migration) throws IOException {
+        Book book = bookRepository.findById(bookId).orElse(null);
+        if (book == null) {
+            return;
+        }
+
+        boolean switched = switchReference(book.getImageUrl(), migration,
+                (expected, replacement) -> uploadReferenceRepository.switchBookImage(bookId, expected, replacement));
+        switched |= switchReference(book.getContentUrl(), migration,
+                (expected, replacement) -> uploadReferenceRepository.switchBookContent(bookId, expected, replacement));
+        if (switched) {
+            bookService.ownerBooksChanged(book.getOwner().getId());
+            migration.books++;
+        }
+    }
+
+    private void migrateUser(Long userId, Migration migration) throws IOException {
+        User user = userRepository.findById(userId).orElse(null);
+        if (user == null) {
+            return;
+        }
+
+        if (switchReference(user.getProfilePhoto(), migration,
+                (expected, replacement) -> uploadReferenceRepository.switchProfilePhoto(userId, expected, replacement))) {
+            bookService.ownerBooksChanged(userId);
+            migration.users++;
+        }
+    }
+
+    /**
+     * Convert one legacy reference and switch the column over, but only if it still holds the legacy path. If
+     * the owner replaced the upload meanwhile, the reference added for the conversion is released again and the
+     * old file is left to whoever replaced it.
+     */
+    private boolean switchReference(String path, Migration migration, ReferenceSwitch referenceSwitch) throws IOException {
+        String blobPath = convert(path, migration);
+        if (Objects.equals(blobPath, path)) {
+            return false;
+        }
+
+        boolean switched;
+        try {
+            switched = referenceSwitch.apply(path, blobPath);
+        } catch (RuntimeException e) {
+            release(blobPath);
+            throw e;
+        }
+        if (!switched) {
+            release(blobPath);
+            migration.superseded++;
+            return false;
+        }
+        pendingDeletes.add(new PendingDelete(path, System.currentTimeMillis() + legacyRetention));
+        return true;
+    }
+
+    /**
+     * Blob reference for a legacy path, with the content added to the store; the path itself if it is
+     * already a blob reference or its file is gone.
+     */
+    private String convert(String path, Migration migration) throws IOException {
+        if (path == null || FileStorageService.isBlobPath(path)) {
+            return path;
+        }
+        FileMetadata metadata = fileMetadataIndex.get(path);
+        if (metadata == null) {
+            migration.missing++;
+            return path;
+        }
+
+        boolean stored = fileStorageService.addReference(metadata.file(), metadata.sha256(), metadata.size(), false);
+        String blobPath = FileStorageService.blobPath(metadata.sha256(), FileStorageService.extensionOf(path));
+        migration.converted++;
+        if (!stored) {
+            migration.deduplicated++;
+            migration.bytesReclaimed += metadata.size();
+        }
+        return blobPath;
+    }
+
+    private void release(String blobPath) {
+        try {
+            fileStorageService.delete(blobPath);
+        } catch (IOException e) {
+            logger.warn("📁 Reference to {} could not be released - {}", blobPath, e.getMessage());
+        }
+    }
+
+    @FunctionalInterface
+    private interface ReferenceSwitch {
+        boolean apply(String expected, String replacement);
+    }
+
+    private record PendingDelete(String path, long deleteAt) {
+    }
+
+    private static class Migration {
+        int books;
+        int users;
+        int converted;
+        int deduplicated;
+        int missing;
+        int superseded;
+        int failed;
+        long bytesReclaimed;
+    }
+}
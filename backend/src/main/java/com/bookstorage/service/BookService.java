@@ -1,63 +1,192 @@
 package com.bookstorage.service;
 
 import com.bookstorage.dto.BookDto;
+import com.bookstorage.dto.BookSuggestion;
+import com.bookstorage.dto.CountMode;
+import com.bookstorage.dto.CursorPage;
 import com.bookstorage.entity.Book;
 import com.bookstorage.entity.User;
 import com.bookstorage.repository.BookRepository;
+import com.bookstorage.repository.BookSearchRepository;
+import com.bookstorage.repository.RowEstimateRepository;
 import com.bookstorage.repository.UserRepository;
+import com.bookstorage.search.BookSearchIndex;
+import com.bookstorage.search.SuggestionIndex;
+import com.bookstorage.util.ETagUtil;
+import com.bookstorage.util.PageUtil;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class BookService {
 
     private static final Logger logger = LoggerFactory.getLogger(BookService.class);
 
+    // The library landing view: newest first, no search term
+    private static final Sort LANDING_SORT = Sort.by(Sort.Direction.DESC, "createdAt");
+
     @Autowired
     private BookRepository bookRepository;
 
     @Autowired
     private UserRepository userRepository;
 
-    @Value("${file.upload.path}")
-    private String uploadPath;
+    @Autowired
+    private RowEstimateRepository rowEstimateRepository;
+
+    @Autowired
+    private BookSearchRepository bookSearchRepository;
+
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+
+    @Autowired
+    private SuggestionIndex suggestionIndex;
+
+    @Autowired
+    private FirstPageCache firstPageCache;
+
+    @Autowired
+    private ListingVersions listingVersions;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private UploadSessionService uploadSessionService;
 
     public Page<BookDto> getUserBooks(String username, String searchTerm, Pageable pageable) {
         logger.debug("Getting books for user: {} with search term: '{}'", username, searchTerm);
-        
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> {
-                    logger.warn("User not found: {}", username);
-                    return new RuntimeException("User not found");
-                });
 
-        Page<Book> books;
-        if (searchTerm != null && !searchTerm.trim().isEmpty()) {
-            books = bookRepository.findByOwnerAndSearchTerm(user, searchTerm.trim(), pageable);
+        Page<BookDto> books;
+        if (searchTerm != null && !searchTerm.trim().isEmpty() && bookSearchIndex.isEnabled()) {
+            books = searchIndexedBooks(username, searchTerm.trim(), pageable);
+            logger.debug("Found {} books for user {} with search term '{}'", books.getTotalElements(), username, searchTerm);
+        } else if (searchTerm != null && !searchTerm.trim().isEmpty() && bookSearchRepository.isEnabled()) {
+            books = bookSearchRepository.searchOwnerBooks(username, searchTerm.trim(), pageable);
             logger.debug("Found {} books for user {} with search term '{}'", books.getTotalElements(), username, searchTerm);
+        } else if (searchTerm != null && !searchTerm.trim().isEmpty()) {
+            books = bookRepository.findDtoByOwnerUsernameAndSearchTerm(username, searchTerm.trim(), pageable);
+            logger.debug("Found {} books for user {} with search term '{}'", books.getTotalElements(), username, searchTerm);
+        } else if (isLandingPage(pageable)) {
+            User owner = userRepository.findByUsername(username)
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+            books = firstPageCache.get(owner.getId(), pageable.getPageSize(),
+                    () -> bookRepository.findDtoByOwnerId(owner.getId(), pageable));
         } else {
-            books = bookRepository.findByOwner(user, pageable);
+            books = bookRepository.findDtoByOwnerUsername(username, pageable);
             logger.debug("Found {} books for user {}", books.getTotalElements(), username);
         }
 
-        return books.map(BookDto::new);
+        return books;
+    }
+
+    public Slice<BookDto> getUserBooks(String username, String searchTerm, Pageable pageable, CountMode countMode) {
+        String term = searchTerm != null && !searchTerm.trim().isEmpty() ? searchTerm.trim() : null;
+        if (countMode == CountMode.EXACT || (term == null && isLandingPage(pageable))) {
+            // the cached landing page already carries its exact total
+            return getUserBooks(username, searchTerm, pageable);
+        }
+
+        Slice<BookDto> books;
+        if (term != null && bookSearchIndex.isEnabled()) {
+            // the index knows the exact total for free
+            return searchIndexedBooks(username, term, pageable);
+        } else if (term != null && bookSearchRepository.isEnabled()) {
+            books = bookSearchRepository.searchOwnerBooksSlice(username, term, pageable);
+        } else if (term != null) {
+            books = bookRepository.findDtoSliceByOwnerUsernameAndSearchTerm(username, term, pageable);
+        } else {
+            books = bookRepository.findDtoSliceByOwnerUsername(username, pageable);
+        }
+
+        if (countMode == CountMode.NONE) {
+            return books;
+        }
+        OptionalLong estimate = rowEstimateRepository.estimateOwnerBooks(username, term);
+        return estimate.isPresent() ? PageUtil.withEstimatedTotal(books, estimate.getAsLong())
+                : getUserBooks(username, searchTerm, pageable);
+    }
+
+    public CursorPage<BookDto> getUserBooksAfter(String username, String searchTerm, String cursor, int size) {
+        BookCursor after = BookCursor.decode(cursor);
+        Pageable limit = Pageable.ofSize(size + 1);
+
+        // same engine as offset paging, so switching to cursors doesn't change which books match
+        String term = searchTerm != null && !searchTerm.trim().isEmpty() ? searchTerm.trim() : null;
+        List<BookDto> books;
+        if (term != null && bookSearchIndex.isEnabled()) {
+            User owner = userRepository.findByUsername(username)
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+            books = findDtosInOrder(bookSearchIndex.searchOwnerAfter(owner.getId(), term,
+                    after.createdAt(), after.id(), size + 1));
+        } else if (term != null && bookSearchRepository.isEnabled()) {
+            books = bookSearchRepository.searchOwnerBooksAfter(username, term, after.createdAt(), after.id(), size + 1);
+        } else if (term != null) {
+            books = bookRepository.findDtoByOwnerUsernameAndSearchTermAfter(username, term,
+                    after.createdAt(), after.id(), limit);
+        } else {
+            books = bookRepository.findDtoByOwnerUsernameAfter(username, after.createdAt(), after.id(), limit);
+        }
+        return toCursorPage(books, size);
     }
 
     public BookDto getBookById(Long bookId, String username) {
+        return new BookDto(getAccessibleBook(bookId, username));
+    }
+
+    /**
+     * ETag of a single book: changes when the book or its owner's profile is modified.
+     * Both entities come from the second-level cache, so a 304 costs no query and no serialization.
+     */
+    public String getBookETag(Long bookId, String username) {
+        Book book = getAccessibleBook(bookId, username);
+        return ETagUtil.strong("b" + book.getId(), book.getUpdatedAt(), book.getOwner().getUpdatedAt());
+    }
+
+    public String getUserBooksETag(String username) {
+        User owner = userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        return listingVersions.ownerETag(owner.getId());
+    }
+
+    public String getUserBooksETag(Long userId) {
+        return listingVersions.ownerETag(userId);
+    }
+
+    public String getAllBooksETag() {
+        return listingVersions.catalogETag();
+    }
+
+    private Book getAccessibleBook(Long bookId, String username) {
         Book book = bookRepository.findById(bookId)
                 .orElseThrow(() -> new RuntimeException("Book not found"));
 
@@ -69,11 +198,12 @@ public class BookService {
             throw new RuntimeException("Access denied");
         }
 
-        return new BookDto(book);
+        return book;
     }
 
     public BookDto createBook(String username, String title, String author, String description,
-                            MultipartFile coverImage, MultipartFile bookFile) {
+                            MultipartFile coverImage, MultipartFile bookFile,
+                            String coverUploadId, String bookFileUploadId) {
         logger.info("Creating book for user: {} with title: '{}'", username, title);
         
         User user = userRepository.findByUsername(username)
@@ -88,29 +218,25 @@ public class BookService {
         book.setDescription(description);
         book.setOwner(user);
 
-        // Handle cover image upload
-        if (coverImage != null && !coverImage.isEmpty()) {
-            logger.debug("Uploading cover image for book: {}", title);
-            String imageUrl = uploadFile(coverImage, "covers");
-            book.setImageUrl(imageUrl);
-            logger.debug("Cover image uploaded successfully: {}", imageUrl);
-        }
-
-        // Handle book file upload
-        if (bookFile != null && !bookFile.isEmpty()) {
-            logger.debug("Uploading book file for book: {}", title);
-            String contentUrl = uploadFile(bookFile, "books");
-            book.setContentUrl(contentUrl);
-            logger.debug("Book file uploaded successfully: {}", contentUrl);
-        }
-
-        Book savedBook = bookRepository.save(book);
+        // Handle cover image and book file uploads
+        StoredUploads uploads = storeUploads(uploadTask(coverImage, coverUploadId, user),
+                uploadTask(bookFile, bookFileUploadId, user));
+        book.setImageUrl(uploads.cover());
+        book.setContentUrl(uploads.bookFile());
+        logger.debug("Uploads stored for book {}: cover {}, file {}", title, uploads.cover(), uploads.bookFile());
+
+        Book savedBook = saveReplacingFiles(book, uploads.paths(), List.of());
+        userRepository.adjustBooksCount(user, 1);
+        indexBook(savedBook);
+        suggestionIndex.add(user.getId(), savedBook.getTitle(), savedBook.getAuthor());
+        ownerBooksChanged(user.getId());
         logger.info("Book created successfully: {} with ID: {}", title, savedBook.getId());
         return new BookDto(savedBook);
     }
 
     public BookDto updateBook(Long bookId, String username, String title, String author, 
-                            String description, MultipartFile coverImage, MultipartFile bookFile) {
+                            String description, MultipartFile coverImage, MultipartFile bookFile,
+                            String coverUploadId, String bookFileUploadId) {
         Book book = bookRepository.findById(bookId)
                 .orElseThrow(() -> new RuntimeException("Book not found"));
 
@@ -121,6 +247,9 @@ public class BookService {
             throw new RuntimeException("Access denied");
         }
 
+        String oldTitle = book.getTitle();
+        String oldAuthor = book.getAuthor();
+
         if (title != null && !title.trim().isEmpty()) {
             book.setTitle(title);
         }
@@ -131,27 +260,74 @@ public class BookService {
             book.setDescription(description);
         }
 
-        // Handle cover image upload
-        if (coverImage != null && !coverImage.isEmpty()) {
-            // Delete old cover image if exists
+        // Handle cover image and book file uploads; the files they replace are deleted once the update is committed
+        StoredUploads uploads = storeUploads(uploadTask(coverImage, coverUploadId, user),
+                uploadTask(bookFile, bookFileUploadId, user));
+        List<String> replaced = new ArrayList<>(2);
+        if (uploads.cover() != null) {
             if (book.getImageUrl() != null) {
-                deleteFile(book.getImageUrl());
+                replaced.add(book.getImageUrl());
             }
-            String imageUrl = uploadFile(coverImage, "covers");
-            book.setImageUrl(imageUrl);
+            book.setImageUrl(uploads.cover());
         }
-
-        // Handle book file upload
-        if (bookFile != null && !bookFile.isEmpty()) {
-            // Delete old book file if exists
+        if (uploads.bookFile() != null) {
             if (book.getContentUrl() != null) {
-                deleteFile(book.getContentUrl());
+                replaced.add(book.getContentUrl());
             }
-            String contentUrl = uploadFile(bookFile, "books");
-            book.setContentUrl(contentUrl);
+            book.setContentUrl(uploads.bookFile());
+        }
+
+        Book savedBook = saveReplacingFiles(book, uploads.paths(), replaced);
+        indexBook(savedBook);
+        suggestionIndex.replace(user.getId(), oldTitle, oldAuthor, savedBook.getTitle(), savedBook.getAuthor());
+        ownerBooksChanged(user.getId());
+        return new BookDto(savedBook);
+    }
+
+    /**
+     * Replace the book's cover with content streamed from the request body, written to storage in one pass.
+     */
+    public BookDto uploadCover(Long bookId, String username, InputStream content, long contentLength, String filename) {
+        return replaceUpload(bookId, username, true, content, contentLength, filename);
+    }
+
+    /**
+     * Replace the book's file with content streamed from the request body, written to storage in one pass.
+     */
+    public BookDto uploadBookFile(Long bookId, String username, InputStream content, long contentLength, String filename) {
+        return replaceUpload(bookId, username, false, content, contentLength, filename);
+    }
+
+    private BookDto replaceUpload(Long bookId, String username, boolean cover,
+                                  InputStream content, long contentLength, String filename) {
+        Book book = bookRepository.findById(bookId)
+                .orElseThrow(() -> new RuntimeException("Book not found"));
+
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        if (!book.isOwnedBy(user)) {
+            throw new RuntimeException("Access denied");
         }
 
-        Book savedBook = bookRepository.save(book);
+        String path;
+        try {
+            path = fileStorageService.store(content, contentLength, filename);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to upload file", e);
+        }
+
+        String oldPath;
+        if (cover) {
+            oldPath = book.getImageUrl();
+            book.setImageUrl(path);
+        } else {
+            oldPath = book.getContentUrl();
+            book.setContentUrl(path);
+        }
+        Book savedBook = saveReplacingFiles(book, List.of(path), oldPath == null ? List.of() : List.of(oldPath));
+        ownerBooksChanged(user.getId());
+        logger.info("Streamed upload stored for book {}: {}", bookId, path);
         return new BookDto(savedBook);
     }
 
@@ -175,11 +351,125 @@ public class BookService {
         }
 
         bookRepository.delete(book);
+        userRepository.adjustBooksCount(user, -1);
+        suggestionIndex.remove(user.getId(), book.getTitle(), book.getAuthor());
+        ownerBooksChanged(user.getId());
+        if (bookSearchIndex.isEnabled()) {
+            bookSearchIndex.remove(bookId);
+        }
     }
 
     public Page<BookDto> getAllBooks(String title, String author, Long ownerId, Pageable pageable) {
-        Page<Book> books = bookRepository.findByFilters(title, author, ownerId, pageable);
-        return books.map(BookDto::new);
+        return bookRepository.findDtoByFilters(title, author, ownerId, pageable);
+    }
+
+    public Slice<BookDto> getAllBooks(String title, String author, Long ownerId, Pageable pageable, CountMode countMode) {
+        if (countMode == CountMode.EXACT) {
+            return getAllBooks(title, author, ownerId, pageable);
+        }
+
+        Slice<BookDto> books = bookRepository.findDtoSliceByFilters(title, author, ownerId, pageable);
+        if (countMode == CountMode.NONE) {
+            return books;
+        }
+        OptionalLong estimate = rowEstimateRepository.estimateBooks(title, author, ownerId);
+        return estimate.isPresent() ? PageUtil.withEstimatedTotal(books, estimate.getAsLong())
+                : getAllBooks(title, author, ownerId, pageable);
+    }
+
+    public CursorPage<BookDto> getAllBooksAfter(String title, String author, Long ownerId, String cursor, int size) {
+        BookCursor after = BookCursor.decode(cursor);
+        List<BookDto> books = bookRepository.findDtoByFiltersAfter(title, author, ownerId,
+                after.createdAt(), after.id(), Pageable.ofSize(size + 1));
+        return toCursorPage(books, size);
+    }
+
+    /**
+     * Trim the look-ahead row fetched to detect a further page and derive the cursor from the last row kept.
+     */
+    private CursorPage<BookDto> toCursorPage(List<BookDto> rows, int size) {
+        if (rows.size() <= size) {
+            return new CursorPage<>(rows, size, null);
+        }
+        List<BookDto> page = rows.subList(0, size);
+        BookDto last = page.get(size - 1);
+        return new CursorPage<>(page, size, new BookCursor(last.getCreatedAt(), last.getId()).encode());
+    }
+
+    /**
+     * Load every book into the in-memory search index in one streamed pass.
+     */
+    @Transactional(readOnly = true)
+    public void rebuildSearchIndex() {
+        bookSearchIndex.rebuild(index -> {
+            try (Stream<Object[]> rows = bookRepository.streamAllForIndex()) {
+                rows.forEach(row -> index.index((Long) row[0], (Long) row[1], (String) row[2], (String) row[3],
+                        (String) row[4], (LocalDateTime) row[5], (LocalDateTime) row[6]));
+            }
+        });
+    }
+
+    public List<BookSuggestion> suggest(String username, String prefix, int limit) {
+        return userRepository.findByUsername(username)
+                .map(owner -> suggestionIndex.suggest(owner.getId(), prefix, limit))
+                .orElseThrow(() -> new RuntimeException("User not found"));
+    }
+
+    /**
+     * Load every title and author into the typeahead index in one streamed pass.
+     */
+    @Transactional(readOnly = true)
+    public void rebuildSuggestionIndex() {
+        suggestionIndex.rebuild(index -> {
+            try (Stream<Object[]> rows = bookRepository.streamTitlesAndAuthors()) {
+                rows.forEach(row -> index.add((Long) row[0], (String) row[1], (String) row[2]));
+            }
+        });
+    }
+
+    private Page<BookDto> searchIndexedBooks(String username, String searchTerm, Pageable pageable) {
+        User owner = userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+
+        BookSearchIndex.SearchResult result = bookSearchIndex.searchOwner(owner.getId(), searchTerm,
+                pageable.getSort(), pageable.getOffset(), pageable.getPageSize());
+        if (result.ids().isEmpty()) {
+            return new PageImpl<>(List.of(), pageable, result.total());
+        }
+
+        return new PageImpl<>(findDtosInOrder(result.ids()), pageable, result.total());
+    }
+
+    private List<BookDto> findDtosInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        // keep the index's order, the IN query returns rows in arbitrary order
+        Map<Long, Integer> position = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            position.put(ids.get(i), i);
+        }
+        List<BookDto> books = new ArrayList<>(bookRepository.findDtoByIdIn(ids));
+        books.sort(Comparator.comparing(book -> position.get(book.getId())));
+        return books;
+    }
+
+    /**
+     * Drop cached listings of the owner's books and move their ETag on. Call after the change is saved.
+     */
+    void ownerBooksChanged(Long ownerId) {
+        firstPageCache.invalidateOwner(ownerId);
+        listingVersions.touchOwner(ownerId);
+    }
+
+    private static boolean isLandingPage(Pageable pageable) {
+        return pageable.getPageNumber() == 0 && LANDING_SORT.equals(pageable.getSort());
+    }
+
+    private void indexBook(Book book) {
+        if (bookSearchIndex.isEnabled()) {
+            bookSearchIndex.index(book);
+        }
     }
 
     public List<BookDto> getUserBooksByUserId(Long userId) {
@@ -188,34 +478,130 @@ public class BookService {
     }
 
     public Page<BookDto> getUserBooksByUserId(Long userId, Pageable pageable) {
-        Page<Book> books = bookRepository.findByOwnerIdOrderByCreatedAtDesc(userId, pageable);
-        return books.map(BookDto::new);
+        return bookRepository.findDtoByOwnerId(userId, pageable);
+    }
+
+    private String uploadFile(MultipartFile file) {
+        try {
+            return fileStorageService.store(file);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to upload file", e);
+        }
+    }
+
+    /**
+     * The work that stores one upload of a create or update, or null if the request carries none.
+     */
+    private Callable<String> uploadTask(MultipartFile file, String uploadId, User user) {
+        if (file != null && !file.isEmpty()) {
+            return () -> uploadFile(file);
+        }
+        if (hasText(uploadId)) {
+            return () -> claimUpload(uploadId, user);
+        }
+        return null;
+    }
+
+    /**
+     * Store the cover and the book file side by side, each on its own virtual thread, so a full create or
+     * update takes as long as the slower of the two. The scope is closed only once both have finished; if
+     * either failed, whatever the other stored is released before the failure is rethrown.
+     */
+    private StoredUploads storeUploads(Callable<String> coverTask, Callable<String> bookFileTask) {
+        if (coverTask == null || bookFileTask == null) {
+            // nothing to overlap
+            return new StoredUploads(runUpload(coverTask), runUpload(bookFileTask));
+        }
+
+        Future<String> cover;
+        Future<String> bookFile;
+        try (ExecutorService scope = Executors.newVirtualThreadPerTaskExecutor()) {
+            cover = scope.submit(coverTask);
+            bookFile = scope.submit(bookFileTask);
+        }
+
+        // neither is interrupted when the other fails: an interrupt closes the socket of a ref-count update in flight
+        Throwable failure = cover.state() == Future.State.FAILED ? cover.exceptionNow()
+                : bookFile.state() == Future.State.FAILED ? bookFile.exceptionNow() : null;
+        if (failure == null) {
+            return new StoredUploads(cover.resultNow(), bookFile.resultNow());
+        }
+        for (Future<String> upload : List.of(cover, bookFile)) {
+            if (upload.state() == Future.State.SUCCESS) {
+                deleteFile(upload.resultNow());
+            }
+        }
+        if (failure instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        if (failure instanceof Error error) {
+            throw error;
+        }
+        throw new RuntimeException("Failed to upload file", failure);
+    }
+
+    private static String runUpload(Callable<String> task) {
+        if (task == null) {
+            return null;
+        }
+        try {
+            return task.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to upload file", e);
+        }
     }
 
-    private String uploadFile(MultipartFile file, String subdirectory) {
+    /**
+     * Save a book that now references the stored files in place of the replaced ones. The replaced files are
+     * deleted only after the change is committed; if it is not, the stored files are released instead.
+     */
+    private Book saveReplacingFiles(Book book, List<String> stored, List<String> replaced) {
+        Book savedBook;
         try {
-            String fileName = subdirectory + "_" + UUID.randomUUID().toString() + "_" + file.getOriginalFilename();
-            Path uploadDir = Paths.get(uploadPath + subdirectory + "/");
-            
-            if (!Files.exists(uploadDir)) {
-                Files.createDirectories(uploadDir);
+            savedBook = bookRepository.save(book);
+        } catch (RuntimeException e) {
+            stored.forEach(this::deleteFile);
+            throw e;
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            // saved in its own transaction, which has committed
+            replaced.forEach(this::deleteFile);
+            return savedBook;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                (status == STATUS_COMMITTED ? replaced : stored).forEach(BookService.this::deleteFile);
             }
+        });
+        return savedBook;
+    }
 
-            Path filePath = uploadDir.resolve(fileName);
-            Files.copy(file.getInputStream(), filePath);
+    private record StoredUploads(String cover, String bookFile) {
 
-            return subdirectory + "/" + fileName;
+        List<String> paths() {
+            return Stream.of(cover, bookFile).filter(Objects::nonNull).toList();
+        }
+    }
+
+    private String claimUpload(String uploadId, User user) {
+        try {
+            return uploadSessionService.claim(uploadId, user.getId());
         } catch (IOException e) {
-            throw new RuntimeException("Failed to upload file", e);
+            throw new RuntimeException("Failed to claim upload", e);
         }
     }
 
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+
     private void deleteFile(String filePath) {
         try {
-            Path path = Paths.get(uploadPath + filePath);
-            if (Files.exists(path)) {
-                Files.delete(path);
-            }
+            fileStorageService.delete(filePath);
         } catch (IOException e) {
             // Log error but don't throw exception
             System.err.println("Failed to delete file: " + filePath);
@@ -0,0 +1,323 @@
+package com.bookstorage.service;
+
+import com.bookstorage.entity.StoredFile;
+import com.bookstorage.repository.StoredFileRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Bounded LRU map from upload path to everything needed to answer a file request (size, mtime, content type,
+ * content hash), so serving a known file costs one lookup and one open. Entries are added when a file is
+ * stored, dropped when it is deleted, and the index is rebuilt from a scan of the upload directory at startup.
+ * Paths that fall out of the map, and blob references, which the scan cannot name, are described from disk
+ * on their first request.
+ */
+@Component
+public class FileMetadataIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileMetadataIndex.class);
+
+    private static final int SNIFF_BYTES = 68;
+
+    // Default images are replaced in place by operators, so they are not indexed
+    private static final String DEFAULTS_DIRECTORY = "defaults";
+
+    private final int maxEntries;
+    private final Map<String, FileMetadata> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @Autowired
+    private StoredFileRepository storedFileRepository;
+
+    @Value("${file.upload.path}")
+    private String uploadPath;
+
+    public FileMetadataIndex(@Value("${file.metadata-index.max-entries:100000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, FileMetadata> eldest) {
+                if (size() > FileMetadataIndex.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Metadata of the uploaded file at the relative path, or null if there is no such file.
+     */
+    public FileMetadata get(String relativePath) throws IOException {
+        FileMetadata metadata;
+        synchronized (entries) {
+            metadata = entries.get(relativePath);
+        }
+        if (metadata != null && metadata.sha256() != null) {
+            hits.increment();
+            return metadata;
+        }
+
+        misses.increment();
+        if (metadata == null) {
+            Path file = resolve(relativePath);
+            if (file == null || !Files.isRegularFile(file)) {
+                return null;
+            }
+            // a blob reference names its own hash
+            String sha256 = FileStorageService.blobHash(relativePath);
+            metadata = describe(relativePath, file, sha256 != null ? sha256
+                    : storedFileRepository.findByPath(relativePath).map(StoredFile::getSha256).orElse(null));
+        }
+        if (metadata.sha256() == null) {
+            metadata = metadata.withSha256(recordContentHash(relativePath, metadata.file()));
+        }
+        synchronized (entries) {
+            entries.put(relativePath, metadata);
+        }
+        return metadata;
+    }
+
+    /**
+     * Index a file that has just been written.
+     */
+    public void put(String relativePath, Path file, String sha256) throws IOException {
+        FileMetadata metadata = describe(relativePath, file, sha256);
+        synchronized (entries) {
+            entries.put(relativePath, metadata);
+        }
+    }
+
+    public void remove(String relativePath) {
+        synchronized (entries) {
+            entries.remove(relativePath);
+        }
+    }
+
+    /**
+     * Path of an upload inside the upload root, or null if the relative path escapes it or is hidden
+     * (uploads in progress live under a hidden directory).
+     */
+    public Path resolve(String relativePath) {
+        if (relativePath.startsWith(".") || relativePath.contains("/.")) {
+            return null;
+        }
+        Path root = root();
+        if (FileStorageService.isBlobPath(relativePath)) {
+            String sha256 = FileStorageService.blobHash(relativePath);
+            return sha256 == null ? null : FileStorageService.blobFile(root, sha256);
+        }
+        Path file = root.resolve(relativePath).normalize();
+        if (!file.startsWith(root)) {
+            return null;
+        }
+        // files from before the blob store are being moved from the flat layout to the sharded one
+        Path sharded = FileStorageService.shardedFile(root, relativePath);
+        return sharded != null && Files.exists(sharded) ? sharded : file;
+    }
+
+    /**
+     * Re-index the upload directory, up to the size bound, taking recorded hashes from stored_files.
+     * Files without a recorded hash are hashed on their first request instead of here.
+     */
+    @Transactional(readOnly = true)
+    public void rebuild() throws IOException {
+        Path root = root();
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+
+        Map<String, String> hashes = new HashMap<>();
+        try (Stream<Object[]> rows = storedFileRepository.streamPathsAndHashes()) {
+            rows.forEach(row -> hashes.put((String) row[0], (String) row[1]));
+        }
+
+        Map<String, FileMetadata> scanned = new LinkedHashMap<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+                // blobs are indexed under their references' names, which the file names do not carry
+                boolean skipped = dir.equals(root.resolve(DEFAULTS_DIRECTORY))
+                        || dir.equals(root.resolve(FileStorageService.BLOB_DIRECTORY))
+                        || (!dir.equals(root) && dir.getFileName().toString().startsWith("."));
+                return skipped ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                if (!attributes.isRegularFile()) {
+                    return FileVisitResult.CONTINUE;
+                }
+                Path relative = root.relativize(file);
+                boolean flat = relative.getNameCount() == 2;
+                String relativePath = relative.getNameCount() == 4
+                        ? relative.getName(0) + "/" + relative.getName(3)
+                        : relativize(root, file);
+                if (flat && scanned.containsKey(relativePath)) {
+                    // already found in the sharded layout, where the migrator has linked it
+                    return FileVisitResult.CONTINUE;
+                }
+                scanned.put(relativePath, new FileMetadata(file, attributes.size(), attributes.lastModifiedTime().toMillis(),
+                        sniffContentType(relativePath, file), hashes.get(relativePath)));
+                return scanned.size() < maxEntries ? FileVisitResult.CONTINUE : FileVisitResult.TERMINATE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                logger.warn("📁 Could not index {} - {}", file, e.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        synchronized (entries) {
+            entries.clear();
+            entries.putAll(scanned);
+        }
+        logger.info("📁 File metadata index built - {} files", scanned.size());
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long total = hitCount + missCount;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (entries) {
+            stats.put("size", entries.size());
+        }
+        stats.put("maxEntries", maxEntries);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("evictions", evictions.sum());
+        stats.put("hitRatio", total == 0 ? 0.0 : (double) hitCount / total);
+        return stats;
+    }
+
+    private FileMetadata describe(String relativePath, Path file, String sha256) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        return new FileMetadata(file, attributes.size(), attributes.lastModifiedTime().toMillis(),
+                sniffContentType(relativePath, file), sha256);
+    }
+
+    /**
+     * Hash a file uploaded before hashes were recorded, once, and record it.
+     */
+    private String recordContentHash(String relativePath, Path file) throws IOException {
+        MessageDigest digest = FileStorageService.newDigest();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        String sha256 = HexFormat.of().formatHex(digest.digest());
+        try {
+            storedFileRepository.save(new StoredFile(relativePath, sha256, Files.size(file)));
+            logger.debug("📁 Recorded content hash for existing file {}", relativePath);
+        } catch (DataIntegrityViolationException e) {
+            // another request recorded it first
+        }
+        return sha256;
+    }
+
+    /**
+     * Content type from the file's leading magic bytes, falling back to the extension of the path it is
+     * requested by (blob files carry none).
+     */
+    static String sniffContentType(String relativePath, Path file) throws IOException {
+        byte[] head = new byte[SNIFF_BYTES];
+        int read;
+        try (InputStream in = Files.newInputStream(file)) {
+            read = in.readNBytes(head, 0, SNIFF_BYTES);
+        }
+
+        if (startsWith(head, read, 0, 0xFF, 0xD8, 0xFF)) {
+            return "image/jpeg";
+        }
+        if (startsWith(head, read, 0, 0x89, 'P', 'N', 'G')) {
+            return "image/png";
+        }
+        if (startsWith(head, read, 0, 'G', 'I', 'F', '8')) {
+            return "image/gif";
+        }
+        if (startsWith(head, read, 0, 'R', 'I', 'F', 'F') && startsWith(head, read, 8, 'W', 'E', 'B', 'P')) {
+            return "image/webp";
+        }
+        if (startsWith(head, read, 0, '%', 'P', 'D', 'F')) {
+            return "application/pdf";
+        }
+        // EPUB is a zip whose first entry is an uncompressed "mimetype" file
+        if (startsWith(head, read, 0, 'P', 'K', 3, 4)
+                && new String(head, 30, Math.max(0, read - 30), StandardCharsets.US_ASCII).startsWith("mimetypeapplication/epub+zip")) {
+            return "application/epub+zip";
+        }
+        if (startsWith(head, read, 60, 'B', 'O', 'O', 'K', 'M', 'O', 'B', 'I')) {
+            return "application/x-mobipocket-ebook";
+        }
+        return contentTypeForExtension(relativePath.substring(relativePath.lastIndexOf('/') + 1));
+    }
+
+    static String contentTypeForExtension(String filename) {
+        String extension = filename.substring(filename.lastIndexOf(".") + 1).toLowerCase(Locale.ROOT);
+        
+        return switch (extension) {
+            case "jpg", "jpeg" -> "image/jpeg";
+            case "png" -> "image/png";
+            case "gif" -> "image/gif";
+            case "pdf" -> "application/pdf";
+            case "txt" -> "text/plain";
+            case "epub" -> "application/epub+zip";
+            case "mobi" -> "application/x-mobipocket-ebook";
+            default -> "application/octet-stream";
+        };
+    }
+
+    private static boolean startsWith(byte[] head, int read, int offset, int... magic) {
+        if (read < offset + magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if ((head[offset + i] & 0xFF) != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Path root() {
+        return Paths.get(uploadPath).toAbsolutePath().normalize();
+    }
+
+    private static String relativize(Path root, Path file) {
+        return root.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+    }
+
+    public record FileMetadata(Path file, long size, long lastModified, String contentType, String sha256) {
+
+        FileMetadata withSha256(String sha256) {
+            return new FileMetadata(file, size, lastModified, contentType, sha256);
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package com.bookstorage.service;
+
+import com.bookstorage.repository.FileBlobRepository;
+import com.bookstorage.repository.StoredFileRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed store for uploads. Each distinct content is kept once, at blobs/ab/cd/{sha256}, and is
+ * referenced as blobs/{sha256}.{ext} from imageUrl / contentUrl / profilePhoto; file_blobs counts the
+ * references, so a blob is deleted with its last one. Files uploaded before the blob store keep their own
+ * paths until they are migrated.
+ */
+@Service
+public class FileStorageService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileStorageService.class);
+
+    // Uploads are written here first; hidden, so it is never indexed or served
+    static final String INCOMING_DIRECTORY = ".incoming";
+
+    static final String BLOB_DIRECTORY = "blobs";
+
+    private static final Pattern BLOB_PATH = Pattern.compile("blobs/([0-9a-f]{64})(\\.[a-z0-9]{1,10})?");
+
+    private static final Pattern EXTENSION = Pattern.compile("[a-z0-9]{1,10}");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Reference changes to one blob are serialized, so a blob is never deleted while it gains a reference.
+    // ReentrantLock rather than monitors: stores run on virtual threads, which a monitor held across JDBC
+    // calls and file moves would pin to their carrier.
+    private final ReentrantLock[] blobLocks = new ReentrantLock[64];
+
+    @Autowired
+    private FileBlobRepository fileBlobRepository;
+
+    @Autowired
+    private StoredFileRepository storedFileRepository;
+
+    @Autowired
+    private FileMetadataIndex fileMetadataIndex;
+
+    @Autowired
+    private HotFileCache hotFileCache;
+
+    @Value("${file.upload.path}")
+    private String uploadPath;
+
+    @Value("${file.upload.max-size:100MB}")
+    private DataSize maxUploadSize;
+
+    public FileStorageService() {
+        for (int i = 0; i < blobLocks.length; i++) {
+            blobLocks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Store the upload and return the path that references it.
+     */
+    public String store(MultipartFile file) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return store(in, file.getSize(), file.getOriginalFilename());
+        }
+    }
+
+    /**
+     * Stream content of unknown or declared length (-1 if unknown) into the blob store in one pass, hashing and
+     * counting it on the way. It is written to a temporary file under the upload root and renamed into place only
+     * once complete, so a partial or oversized upload never becomes visible. Content that is already stored is
+     * only referenced again, and the new copy is discarded.
+     */
+    public String store(InputStream content, long declaredLength, String originalFilename) throws IOException {
+        long maxBytes = maxUploadSize.toBytes();
+        if (declaredLength > maxBytes) {
+            throw new UploadTooLargeException(maxBytes);
+        }
+
+        Path incomingDir = Paths.get(uploadPath + INCOMING_DIRECTORY + "/");
+        Files.createDirectories(incomingDir);
+
+        Path partPath = incomingDir.resolve(UUID.randomUUID() + ".part");
+        MessageDigest digest = newDigest();
+        long size = 0;
+        String sha256;
+        try {
+            try (OutputStream out = Files.newOutputStream(partPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = content.read(buffer)) != -1) {
+                    size += read;
+                    if (size > maxBytes) {
+                        throw new UploadTooLargeException(maxBytes);
+                    }
+                    digest.update(buffer, 0, read);
+                    out.write(buffer, 0, read);
+                }
+            }
+            sha256 = HexFormat.of().formatHex(digest.digest());
+            addReference(partPath, sha256, size, true);
+        } finally {
+            Files.deleteIfExists(partPath);
+        }
+
+        String relativePath = blobPath(sha256, extensionOf(originalFilename));
+        fileMetadataIndex.put(relativePath, blobFile(root(), sha256), sha256);
+        logger.debug("📁 Stored {} ({} bytes)", relativePath, size);
+        return relativePath;
+    }
+
+    /**
+     * Add a file assembled elsewhere under the upload root (a resumable upload) to the blob store, consuming it.
+     */
+    public String storeAssembled(Path file, long size, String originalFilename) throws IOException {
+        MessageDigest digest = newDigest();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        String sha256 = HexFormat.of().formatHex(digest.digest());
+        addReference(file, sha256, size, true);
+        Files.deleteIfExists(file);
+
+        String relativePath = blobPath(sha256, extensionOf(originalFilename));
+        fileMetadataIndex.put(relativePath, blobFile(root(), sha256), sha256);
+        logger.debug("📁 Stored {} ({} bytes)", relativePath, size);
+        return relativePath;
+    }
+
+    public long getMaxUploadBytes() {
+        return maxUploadSize.toBytes();
+    }
+
+    /**
+     * Drop one reference to an upload. A blob is deleted with its last reference; a file from before the
+     * blob store is deleted right away.
+     */
+    public void delete(String relativePath) throws IOException {
+        fileMetadataIndex.remove(relativePath);
+        hotFileCache.remove(relativePath);
+
+        String sha256 = blobHash(relativePath);
+        if (sha256 == null) {
+            if (isBlobPath(relativePath)) {
+                return;
+            }
+            // either layout, since the layout migrator may be moving it right now
+            Files.deleteIfExists(Paths.get(uploadPath + relativePath));
+            Path sharded = shardedFile(root(), relativePath);
+            if (sharded != null) {
+                Files.deleteIfExists(sharded);
+            }
+            storedFileRepository.findByPath(relativePath).ifPresent(storedFileRepository::delete);
+            return;
+        }
+
+        ReentrantLock lock = lockFor(sha256);
+        lock.lock();
+        try {
+            fileBlobRepository.adjustRefCount(sha256, -1);
+            // the row goes first; a file left without one is taken over by the next store of that content
+            if (fileBlobRepository.deleteIfUnreferenced(sha256) > 0) {
+                Files.deleteIfExists(blobFile(root(), sha256));
+                logger.debug("📁 Deleted blob {} with its last reference", sha256);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Add a reference to the content of a file that is already on disk, placing it in the blob store if the
+     * content is new: by rename when the source may be consumed, otherwise by hard link (copy where links are
+     * not supported). Returns true if the content was new.
+     */
+    boolean addReference(Path source, String sha256, long size, boolean consumeSource) throws IOException {
+        ReentrantLock lock = lockFor(sha256);
+        lock.lock();
+        try {
+            if (fileBlobRepository.adjustRefCount(sha256, 1) > 0) {
+                return false;
+            }
+
+            Path blobFile = blobFile(root(), sha256);
+            // a blob file without a row is left over from a failed store; its name vouches for its content
+            if (!Files.exists(blobFile)) {
+                Files.createDirectories(blobFile.getParent());
+                if (consumeSource) {
+                    moveIntoPlace(source, blobFile);
+                } else {
+                    linkOrCopy(source, blobFile);
+                }
+            }
+            fileBlobRepository.insertFirstReference(sha256, size, LocalDateTime.now());
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Object[] summary = fileBlobRepository.summarize().get(0);
+        long storedBytes = ((Number) summary[1]).longValue();
+        long referencedBytes = ((Number) summary[3]).longValue();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("blobs", ((Number) summary[0]).longValue());
+        stats.put("references", ((Number) summary[2]).longValue());
+        stats.put("storedBytes", storedBytes);
+        stats.put("bytesSavedByDeduplication", referencedBytes - storedBytes);
+        return stats;
+    }
+
+    /**
+     * Remove temporary files left behind by uploads that were cut off by a shutdown.
+     */
+    public void purgeIncoming() throws IOException {
+        Path incomingDir = Paths.get(uploadPath + INCOMING_DIRECTORY + "/");
+        if (!Files.isDirectory(incomingDir)) {
+            return;
+        }
+        try (DirectoryStream<Path> parts = Files.newDirectoryStream(incomingDir, "*.part")) {
+            for (Path part : parts) {
+                Files.deleteIfExists(part);
+                logger.info("📁 Removed abandoned upload {}", part.getFileName());
+            }
+        }
+    }
+
+    /**
+     * The content hash named by a blob reference, or null if the path is not one.
+     */
+    static String blobHash(String relativePath) {
+        Matcher matcher = BLOB_PATH.matcher(relativePath);
+        return matcher.matches() ? matcher.group(1) : null;
+    }
+
+    static boolean isBlobPath(String relativePath) {
+        return relativePath.startsWith(BLOB_DIRECTORY + "/");
+    }
+
+    static String blobPath(String sha256, String extension) {
+        return BLOB_DIRECTORY + "/" + sha256 + (extension == null ? "" : "." + extension);
+    }
+
+    /**
+     * Two levels of 256-way fan-out keep every directory small however many blobs there are.
+     */
+    static Path blobFile(Path root, String sha256) {
+        return root.resolve(BLOB_DIRECTORY).resolve(sha256.substring(0, 2)).resolve(sha256.substring(2, 4)).resolve(sha256);
+    }
+
+    /**
+     * Sharded location of a file from before the blob store: covers/x.jpg moves to covers/ab/cd/x.jpg, the
+     * fan-out taken from a hash of the name, while its URL stays the same. Null for paths that are not a
+     * directory and a file name.
+     */
+    static Path shardedFile(Path root, String relativePath) {
+        int slash = relativePath.indexOf('/');
+        if (slash <= 0 || slash != relativePath.lastIndexOf('/') || slash == relativePath.length() - 1) {
+            return null;
+        }
+        String name = relativePath.substring(slash + 1);
+        String shard = HexFormat.of().formatHex(newDigest().digest(name.getBytes(StandardCharsets.UTF_8)), 0, 2);
+        Path file = root.resolve(relativePath.substring(0, slash)).resolve(shard.substring(0, 2))
+                .resolve(shard.substring(2, 4)).resolve(name).normalize();
+        return file.startsWith(root) ? file : null;
+    }
+
+    /**
+     * Lower-case extension of a file name, kept in the reference for content type fallback; null if it has none
+     * or it is not a plain short extension.
+     */
+    static String extensionOf(String filename) {
+        if (filename == null || filename.lastIndexOf('.') < 0) {
+            return null;
+        }
+        String extension = filename.substring(filename.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+        return EXTENSION.matcher(extension).matches() ? extension : null;
+    }
+
+    private ReentrantLock lockFor(String sha256) {
+        return blobLocks[Math.floorMod(sha256.hashCode(), blobLocks.length)];
+    }
+
+    private Path root() {
+        return Paths.get(uploadPath).toAbsolutePath().normalize();
+    }
+
+    private static void moveIntoPlace(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            // the blob directory is mounted from another file system; nobody reads a blob before its row exists
+            Files.move(source, target);
+        }
+    }
+
+    private static void linkOrCopy(Path source, Path target) throws IOException {
+        try {
+            Files.createLink(target, source);
+        } catch (UnsupportedOperationException | IOException e) {
+            Files.copy(source, target);
+        }
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
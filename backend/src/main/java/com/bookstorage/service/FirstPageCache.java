@@ -0,0 +1,141 @@
+package com.bookstorage.service;
+
+import com.bookstorage.dto.BookDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.stereotype.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * LRU cache of each owner's landing page: page 0 of their books, newest first, no search term.
+ * Concurrent misses for the same page share one query. BookService invalidates an owner's pages on
+ * every write; a load that was in flight during the invalidation is returned to its callers but not cached.
+ */
+@Component
+public class FirstPageCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(FirstPageCache.class);
+
+    private final int maxEntries;
+    private final Map<Key, Page<BookDto>> entries;
+    // page sizes cached per owner, guarded by entries, so invalidating an owner does not scan the whole cache
+    private final Map<Long, Set<Integer>> ownerSizes = new HashMap<>();
+    private final ConcurrentHashMap<Key, CompletableFuture<Page<BookDto>>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder sharedLoads = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public FirstPageCache(@Value("${books.first-page-cache.max-entries:10000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Page<BookDto>> eldest) {
+                if (size() > FirstPageCache.this.maxEntries) {
+                    forgetSize(eldest.getKey());
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        logger.info("First page cache initialized - max entries: {}", maxEntries);
+    }
+
+    public Page<BookDto> get(Long ownerId, int size, Supplier<Page<BookDto>> loader) {
+        Key key = new Key(ownerId, size);
+        synchronized (entries) {
+            Page<BookDto> cached = entries.get(key);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+        }
+        misses.increment();
+
+        CompletableFuture<Page<BookDto>> mine = new CompletableFuture<>();
+        CompletableFuture<Page<BookDto>> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            sharedLoads.increment();
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        try {
+            Page<BookDto> page = loader.get();
+            synchronized (entries) {
+                // still registered means no invalidation happened while the query ran
+                if (inFlight.remove(key, mine)) {
+                    entries.put(key, page);
+                    ownerSizes.computeIfAbsent(ownerId, id -> new HashSet<>(2)).add(size);
+                }
+            }
+            mine.complete(page);
+            return page;
+        } catch (RuntimeException e) {
+            inFlight.remove(key, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public void invalidateOwner(Long ownerId) {
+        synchronized (entries) {
+            Set<Integer> sizes = ownerSizes.remove(ownerId);
+            if (sizes != null) {
+                for (int size : sizes) {
+                    entries.remove(new Key(ownerId, size));
+                }
+            }
+            // only loads running right now, not the cached pages
+            inFlight.keySet().removeIf(key -> key.ownerId.equals(ownerId));
+        }
+        invalidations.increment();
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long total = hitCount + missCount;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (entries) {
+            stats.put("size", entries.size());
+        }
+        stats.put("maxEntries", maxEntries);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("sharedLoads", sharedLoads.sum());
+        stats.put("invalidations", invalidations.sum());
+        stats.put("evictions", evictions.sum());
+        stats.put("hitRatio", total == 0 ? 0.0 : (double) hitCount / total);
+        return stats;
+    }
+
+    private void forgetSize(Key key) {
+        Set<Integer> sizes = ownerSizes.get(key.ownerId);
+        if (sizes != null && sizes.remove(key.size) && sizes.isEmpty()) {
+            ownerSizes.remove(key.ownerId);
+        }
+    }
+
+    private record Key(Long ownerId, int size) {
+    }
+}
@@ -0,0 +1,201 @@
+package com.bookstorage.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contents of small, frequently requested files (covers, profile photos, default images) held in direct
+ * buffers, so that serving them does not read the disk. The cached bytes live outside the Java heap, but
+ * writing them to the response still copies them through the output stream's small heap buffer
+ * (see {@link com.bookstorage.util.FileServingUtil}). Concurrent misses for the same file share one read.
+ * Bounded by total bytes and entry count. Eviction is least-recently-used, and a file only displaces the
+ * entries it would evict if it has been requested more often than each of them recently (TinyLFU
+ * admission), so a scan through rarely viewed covers cannot flush the popular ones.
+ */
+@Component
+public class HotFileCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(HotFileCache.class);
+
+    private final long maxBytes;
+    private final int maxEntries;
+    private final long maxFileSize;
+    private final FrequencySketch sketch;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // reads in flight, guarded by entries; remove() drops a key's load so it cannot cache stale content
+    private final Map<String, Load> loading = new HashMap<>();
+    private long bytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder admissions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public HotFileCache(@Value("${file.hot-cache.max-bytes:67108864}") long maxBytes,
+                        @Value("${file.hot-cache.max-entries:10000}") int maxEntries,
+                        @Value("${file.hot-cache.max-file-size:524288}") long maxFileSize) {
+        this.maxBytes = maxBytes;
+        this.maxEntries = maxEntries;
+        this.maxFileSize = Math.min(maxFileSize, maxBytes);
+        this.sketch = new FrequencySketch(maxEntries);
+        logger.info("Hot file cache initialized - max bytes: {}, max entries: {}, max file size: {}",
+                maxBytes, maxEntries, this.maxFileSize);
+    }
+
+    /**
+     * Read-only view of the file's content, loading it if it is admitted; null to serve it from disk.
+     * A cached copy whose size or mtime no longer matches the file is dropped and reloaded.
+     */
+    public ByteBuffer get(String key, Path file, long size, long lastModified) throws IOException {
+        Load shared;
+        Load own = null;
+        synchronized (entries) {
+            sketch.increment(key);
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.size() == size && entry.lastModified() == lastModified) {
+                    hits.increment();
+                    return entry.content().duplicate();
+                }
+                discard(key);
+            }
+            misses.increment();
+            shared = loading.get(key);
+            if (shared == null || shared.size() != size || shared.lastModified() != lastModified) {
+                if (size > maxFileSize || !admit(key, size)) {
+                    rejections.increment();
+                    return null;
+                }
+                shared = null;
+                own = new Load(new CompletableFuture<>(), size, lastModified);
+                loading.put(key, own);
+            }
+        }
+
+        if (shared != null) {
+            // another request is reading this version already: wait for its buffer instead of a second read
+            ByteBuffer content = shared.content().join();
+            return content != null ? content.duplicate() : null;
+        }
+
+        ByteBuffer content = null;
+        try {
+            content = read(file, size);
+        } finally {
+            // on failure the waiters get null and fall back to the disk path
+            finishLoad(key, own, content);
+        }
+        return content != null ? content.duplicate() : null;
+    }
+
+    public void remove(String key) {
+        synchronized (entries) {
+            discard(key);
+            loading.remove(key);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long total = hitCount + missCount;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (entries) {
+            stats.put("size", entries.size());
+            stats.put("bytes", bytes);
+        }
+        stats.put("maxEntries", maxEntries);
+        stats.put("maxBytes", maxBytes);
+        stats.put("maxFileSize", maxFileSize);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("admissions", admissions.sum());
+        stats.put("rejections", rejections.sum());
+        stats.put("evictions", evictions.sum());
+        stats.put("hitRatio", total == 0 ? 0.0 : (double) hitCount / total);
+        return stats;
+    }
+
+    /**
+     * Whether the candidate fits, or is more popular than every entry that would be evicted to make room.
+     */
+    private boolean admit(String key, long size) {
+        long freed = 0;
+        int removed = 0;
+        int candidateFrequency = sketch.frequency(key);
+        for (Map.Entry<String, Entry> victim : entries.entrySet()) {
+            if (bytes - freed + size <= maxBytes && entries.size() - removed < maxEntries) {
+                break;
+            }
+            if (sketch.frequency(victim.getKey()) >= candidateFrequency) {
+                return false;
+            }
+            freed += victim.getValue().size();
+            removed++;
+        }
+        return true;
+    }
+
+    /**
+     * Cache a finished read unless the key was removed or reloaded meanwhile, then hand it to the waiters.
+     */
+    private void finishLoad(String key, Load load, ByteBuffer content) {
+        synchronized (entries) {
+            if (loading.remove(key, load) && content != null) {
+                discard(key);
+                Iterator<Entry> eldest = entries.values().iterator();
+                while ((bytes + load.size() > maxBytes || entries.size() >= maxEntries) && eldest.hasNext()) {
+                    bytes -= eldest.next().size();
+                    eldest.remove();
+                    evictions.increment();
+                }
+                entries.put(key, new Entry(content, load.size(), load.lastModified()));
+                bytes += load.size();
+                admissions.increment();
+            }
+        }
+        load.content().complete(content);
+    }
+
+    private void discard(String key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            bytes -= removed.size();
+        }
+    }
+
+    private static ByteBuffer read(Path file, long size) throws IOException {
+        ByteBuffer content = ByteBuffer.allocateDirect((int) size);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (content.hasRemaining()) {
+                if (channel.read(content) < 0) {
+                    // shorter than its metadata says: leave it to the disk path
+                    return null;
+                }
+            }
+        }
+        return content.flip().asReadOnlyBuffer();
+    }
+
+    private record Entry(ByteBuffer content, long size, long lastModified) {
+    }
+
+    private record Load(CompletableFuture<ByteBuffer> content, long size, long lastModified) {
+    }
+}
@@ -0,0 +1,37 @@
+package com.bookstorage.service;
+
+import com.bookstorage.util.ETagUtil;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Modification stamps for book listings, used as their ETags: one per owner and one for the whole catalog.
+ * Stamps live in memory, so each tag also carries an id of this process start to keep tags issued
+ * before a restart from ever matching again.
+ */
+@Component
+public class ListingVersions {
+
+    private final String instanceId = Long.toString(System.currentTimeMillis(), 36);
+    private final ConcurrentHashMap<Long, Long> ownerVersions = new ConcurrentHashMap<>();
+    private final AtomicLong catalogVersion = new AtomicLong();
+
+    /**
+     * Record a change to the owner's books or to anything about the owner shown in book listings.
+     * Call after the change is committed.
+     */
+    public void touchOwner(Long ownerId) {
+        ownerVersions.merge(ownerId, 1L, Long::sum);
+        catalogVersion.incrementAndGet();
+    }
+
+    public String ownerETag(Long ownerId) {
+        return ETagUtil.strong("o" + ownerId, instanceId, ownerVersions.getOrDefault(ownerId, 0L));
+    }
+
+    public String catalogETag() {
+        return ETagUtil.strong("c", instanceId, catalogVersion.get());
+    }
+}
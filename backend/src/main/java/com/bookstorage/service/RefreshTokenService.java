@@ -0,0 +1,116 @@
+package com.bookstorage.service;
+
+import com.bookstorage.entity.RefreshToken;
+import com.bookstorage.entity.User;
+import com.bookstorage.repository.RefreshTokenRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Issues and rotates server-tracked refresh tokens.
+ * Only a SHA-256 of each token is stored; presenting an already rotated token revokes its whole family.
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    private static final int TOKEN_BYTES = 32;
+
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Value("${jwt.refresh-expiration:1209600000}")
+    private Long refreshExpiration;
+
+    @Transactional
+    public String issue(User user) {
+        return issue(user, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Exchange a refresh token for a new one in the same family.
+     *
+     * @throws RuntimeException if the token is unknown, expired, already used or its user is banned
+     */
+    @Transactional(noRollbackFor = RuntimeException.class)
+    public Rotation rotate(String rawToken) {
+        RefreshToken current = refreshTokenRepository.findByTokenHashWithUser(hash(rawToken))
+                .orElseThrow(() -> new RuntimeException("Invalid refresh token"));
+
+        // Only one caller can flip an active token to revoked; anybody else is replaying it
+        if (current.isRevoked() || refreshTokenRepository.revokeIfActive(current.getId()) == 0) {
+            int revoked = refreshTokenRepository.revokeFamily(current.getFamilyId());
+            logger.warn("Refresh token reuse detected for user: {} - revoked {} tokens in family {}",
+                    current.getUser().getUsername(), revoked, current.getFamilyId());
+            throw new RuntimeException("Refresh token reuse detected");
+        }
+
+        if (current.isExpired()) {
+            throw new RuntimeException("Refresh token expired");
+        }
+
+        User user = current.getUser();
+        if (!user.isActive()) {
+            refreshTokenRepository.revokeFamily(current.getFamilyId());
+            throw new RuntimeException("User is banned");
+        }
+
+        String next = issue(user, current.getFamilyId());
+        logger.debug("Refresh token rotated for user: {}", user.getUsername());
+        return new Rotation(user, next);
+    }
+
+    @Transactional
+    public void revokeAll(Long userId) {
+        int revoked = refreshTokenRepository.revokeAllByUserId(userId);
+        logger.debug("Revoked {} refresh tokens for user ID: {}", revoked, userId);
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.refresh-cleanup-interval:3600000}")
+    @Transactional
+    public void purgeExpired() {
+        int deleted = refreshTokenRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            logger.info("Purged {} expired refresh tokens", deleted);
+        }
+    }
+
+    private String issue(User user, String familyId) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        secureRandom.nextBytes(bytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        LocalDateTime expiresAt = LocalDateTime.now().plusNanos(refreshExpiration * 1_000_000L);
+        refreshTokenRepository.save(new RefreshToken(hash(rawToken), familyId, user, expiresAt));
+        return rawToken;
+    }
+
+    private static String hash(String rawToken) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(rawToken.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public record Rotation(User user, String refreshToken) {
+    }
+}
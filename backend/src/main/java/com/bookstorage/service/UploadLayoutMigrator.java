@@ -0,0 +1,167 @@
+package com.bookstorage.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Moves files that are still in the flat per-kind directories (covers/, books/, profiles/) into the sharded
+ * layout, a batch per run, while the application keeps serving them; their URLs do not change. Each file is
+ * hard-linked into its sharded place first and the flat name is only removed at the start of the next batch,
+ * so a request that resolved the old location just before the switch can still open it.
+ * Stops once the flat directories hold no file left to move; files that failed to move are retried
+ * by later batches.
+ */
+@Component
+public class UploadLayoutMigrator {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadLayoutMigrator.class);
+
+    // Not files from before the blob store: blobs are sharded already, defaults are fixed names
+    private static final List<String> SKIPPED_DIRECTORIES = List.of(FileStorageService.BLOB_DIRECTORY, "defaults");
+
+    @Autowired
+    private FileMetadataIndex fileMetadataIndex;
+
+    @Value("${file.upload.path}")
+    private String uploadPath;
+
+    @Value("${file.layout-migration.enabled:true}")
+    private boolean enabled;
+
+    @Value("${file.layout-migration.batch-size:500}")
+    private int batchSize;
+
+    private final List<Path> pendingDeletes = new ArrayList<>();
+    private final LongAdder migrated = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private volatile boolean finished;
+
+    @Scheduled(initialDelayString = "${file.layout-migration.interval:10000}",
+               fixedDelayString = "${file.layout-migration.interval:10000}")
+    public void migrateBatch() {
+        if (!enabled || finished) {
+            return;
+        }
+
+        Path root = Paths.get(uploadPath).toAbsolutePath().normalize();
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        try {
+            deletePending();
+
+            Batch batch = new Batch();
+            try (DirectoryStream<Path> directories = Files.newDirectoryStream(root, Files::isDirectory)) {
+                for (Path directory : directories) {
+                    String name = directory.getFileName().toString();
+                    if (name.startsWith(".") || SKIPPED_DIRECTORIES.contains(name)) {
+                        continue;
+                    }
+                    migrateDirectory(root, directory, batch);
+                    if (batch.attempted() >= batchSize) {
+                        break;
+                    }
+                }
+            }
+
+            // a file that failed to move is still in a flat directory, so only an empty scan means done
+            if (batch.attempted() == 0 && pendingDeletes.isEmpty()) {
+                finished = true;
+                logger.info("📁 Upload layout migration complete - {} files moved to the sharded layout", migrated.sum());
+            } else if (batch.failed > 0) {
+                logger.warn("📁 Upload layout migration - {} files moved, {} failed in this batch, retrying later",
+                        batch.moved, batch.failed);
+            } else if (batch.moved > 0) {
+                logger.debug("📁 Upload layout migration - {} files moved in this batch", batch.moved);
+            }
+        } catch (IOException e) {
+            logger.warn("📁 Upload layout migration batch failed - {}", e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("finished", finished);
+        stats.put("migrated", migrated.sum());
+        stats.put("failed", failed.sum());
+        stats.put("batchSize", batchSize);
+        return stats;
+    }
+
+    private void migrateDirectory(Path root, Path directory, Batch batch) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, Files::isRegularFile)) {
+            for (Path file : files) {
+                if (batch.attempted() >= batchSize) {
+                    break;
+                }
+                String relativePath = directory.getFileName() + "/" + file.getFileName();
+                Path target = FileStorageService.shardedFile(root, relativePath);
+                if (target == null || file.getFileName().toString().startsWith(".")) {
+                    continue;
+                }
+                try {
+                    migrateFile(file, target);
+                    fileMetadataIndex.remove(relativePath);
+                    migrated.increment();
+                    batch.moved++;
+                } catch (IOException e) {
+                    // most often deleted by its owner since the listing, then the next scan won't see it
+                    failed.increment();
+                    batch.failed++;
+                    logger.debug("📁 Could not move {} to the sharded layout - {}", relativePath, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void migrateFile(Path file, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        try {
+            Files.createLink(target, file);
+        } catch (FileAlreadyExistsException e) {
+            // linked by a run that was interrupted before the flat name was removed
+        } catch (UnsupportedOperationException e) {
+            Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+            return;
+        }
+        pendingDeletes.add(file);
+    }
+
+    private void deletePending() {
+        for (Path file : pendingDeletes) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                logger.warn("📁 Could not remove {} after moving it - {}", file, e.getMessage());
+            }
+        }
+        pendingDeletes.clear();
+    }
+
+    private static final class Batch {
+        int moved;
+        int failed;
+
+        int attempted() {
+            return moved + failed;
+        }
+    }
+}
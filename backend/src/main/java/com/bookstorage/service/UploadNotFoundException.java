@@ -0,0 +1,11 @@
+package com.bookstorage.service;
+
+/**
+ * Thrown when an upload session does not exist, belongs to someone else, or was cancelled or expired.
+ */
+public class UploadNotFoundException extends RuntimeException {
+
+    public UploadNotFoundException() {
+        super("Upload not found");
+    }
+}
@@ -0,0 +1,78 @@
+package com.bookstorage.service;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * State of one resumable upload: who owns it, what it will be, and which byte ranges have been written.
+ * Mirrored to a properties file in the session's directory so it survives a restart. Callers synchronize
+ * on the session.
+ */
+class UploadSession {
+
+    final String id;
+    final Long ownerId;
+    final String filename;
+    final long size;
+    final LocalDateTime createdAt;
+    LocalDateTime updatedAt;
+
+    // Blob reference once finalized; the reference is handed over to the book that claims the upload
+    String path;
+
+    // Chunk writes in flight; finalizing waits for them and turns new ones away, so data.part is never
+    // written after it has been hashed
+    int writers;
+    boolean finalizing;
+
+    // Set once the session is cancelled, claimed or expired; requests still holding it are turned away
+    boolean removed;
+
+    // Committed ranges as start -> end (exclusive), merged so that no two touch
+    final TreeMap<Long, Long> ranges = new TreeMap<>();
+
+    UploadSession(String id, Long ownerId, String filename, long size, LocalDateTime createdAt) {
+        this.id = id;
+        this.ownerId = ownerId;
+        this.filename = filename;
+        this.size = size;
+        this.createdAt = createdAt;
+        this.updatedAt = createdAt;
+    }
+
+    void commit(long start, long end) {
+        Map.Entry<Long, Long> before = ranges.floorEntry(start);
+        if (before != null && before.getValue() >= start) {
+            start = before.getKey();
+            end = Math.max(end, before.getValue());
+            ranges.remove(before.getKey());
+        }
+        Map.Entry<Long, Long> after;
+        while ((after = ranges.ceilingEntry(start)) != null && after.getKey() <= end) {
+            end = Math.max(end, after.getValue());
+            ranges.remove(after.getKey());
+        }
+        ranges.put(start, end);
+    }
+
+    /**
+     * End of the contiguous range written from the start of the file; a client resumes from here.
+     */
+    long committedOffset() {
+        Map.Entry<Long, Long> first = ranges.firstEntry();
+        return first != null && first.getKey() == 0 ? first.getValue() : 0;
+    }
+
+    long committedBytes() {
+        long total = 0;
+        for (Map.Entry<Long, Long> range : ranges.entrySet()) {
+            total += range.getValue() - range.getKey();
+        }
+        return total;
+    }
+
+    boolean isComplete() {
+        return committedOffset() == size;
+    }
+}
@@ -0,0 +1,377 @@
+package com.bookstorage.service;
+
+import com.bookstorage.dto.UploadSessionDto;
+import com.bookstorage.entity.User;
+import com.bookstorage.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Resumable uploads: a session is created with the file's size, chunks are written at their offsets in any
+ * order (several at once if the client likes), and once every byte is there the session is finalized into
+ * the blob store. The finalized upload is then claimed by a book create or update. Partial data and session
+ * state live on local disk under the upload root, so sessions survive a restart; sessions left untouched
+ * for longer than the TTL, with no chunk write or finalize in progress, are removed, along with any
+ * finalized content nobody claimed.
+ */
+@Service
+public class UploadSessionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadSessionService.class);
+
+    // Hidden, so it is never indexed or served
+    private static final String SESSIONS_DIRECTORY = ".sessions";
+    private static final String DATA_FILE = "data.part";
+    private static final String STATE_FILE = "session.properties";
+
+    private static final Pattern SESSION_ID = Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${file.upload.path}")
+    private String uploadPath;
+
+    @Value("${file.upload-session.ttl:86400000}")
+    private long ttlMillis;
+
+    public UploadSessionDto create(String username, String filename, long size) throws IOException {
+        long maxBytes = fileStorageService.getMaxUploadBytes();
+        if (size > maxBytes) {
+            throw new UploadTooLargeException(maxBytes);
+        }
+        if (size <= 0) {
+            throw new RuntimeException("Upload size must be positive");
+        }
+
+        UploadSession session = new UploadSession(UUID.randomUUID().toString(), ownerId(username), filename, size,
+                LocalDateTime.now());
+        Files.createDirectories(sessionDirectory(session.id));
+        Files.createFile(sessionDirectory(session.id).resolve(DATA_FILE));
+        synchronized (session) {
+            persist(session);
+        }
+        sessions.put(session.id, session);
+        logger.debug("📁 Upload session {} created for {} ({} bytes)", session.id, filename, size);
+        return toDto(session);
+    }
+
+    public UploadSessionDto get(String username, String id) {
+        UploadSession session = requireSession(id, ownerId(username));
+        synchronized (session) {
+            return toDto(session);
+        }
+    }
+
+    /**
+     * Write a chunk at the offset. Whatever arrived is committed even if the connection drops mid-chunk,
+     * so the client only resends what is missing.
+     */
+    public UploadSessionDto writeChunk(String username, String id, long offset, InputStream content) throws IOException {
+        UploadSession session = requireSession(id, ownerId(username));
+        if (offset < 0 || offset >= session.size) {
+            throw new RuntimeException("Offset out of range");
+        }
+        synchronized (session) {
+            if (session.removed) {
+                throw new UploadNotFoundException();
+            }
+            if (session.path != null || session.finalizing) {
+                throw new UploadStateException("Upload already finalized", toDto(session));
+            }
+            session.writers++;
+            // a slow resume near the TTL must not look abandoned to the sweeper
+            session.updatedAt = LocalDateTime.now();
+        }
+
+        long written = 0;
+        try (FileChannel channel = FileChannel.open(sessionDirectory(id).resolve(DATA_FILE), StandardOpenOption.WRITE)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = content.read(buffer)) != -1) {
+                if (offset + written + read > session.size) {
+                    throw new RuntimeException("Chunk extends past the end of the upload");
+                }
+                ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                while (chunk.hasRemaining()) {
+                    written += channel.write(chunk, offset + written);
+                }
+            }
+        } finally {
+            synchronized (session) {
+                session.writers--;
+                session.notifyAll();
+                // a session cancelled meanwhile has no directory left to record progress in
+                if (written > 0 && !session.removed) {
+                    session.commit(offset, offset + written);
+                    session.updatedAt = LocalDateTime.now();
+                    persist(session);
+                }
+            }
+        }
+
+        synchronized (session) {
+            return toDto(session);
+        }
+    }
+
+    public UploadSessionDto finalizeUpload(String username, String id) throws IOException {
+        UploadSession session = requireSession(id, ownerId(username));
+        synchronized (session) {
+            if (session.removed) {
+                throw new UploadNotFoundException();
+            }
+            if (session.path == null) {
+                session.finalizing = true;
+                session.updatedAt = LocalDateTime.now();
+                try {
+                    // the channel of a chunk still being written would keep changing the file after it is hashed
+                    while (session.writers > 0) {
+                        session.wait();
+                    }
+                    if (session.removed) {
+                        throw new UploadNotFoundException();
+                    }
+                    if (!session.isComplete()) {
+                        throw new UploadStateException("Upload incomplete: " + session.committedBytes() + " of "
+                                + session.size + " bytes", toDto(session));
+                    }
+                    session.path = fileStorageService.storeAssembled(sessionDirectory(id).resolve(DATA_FILE), session.size,
+                            session.filename);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while waiting for chunk writes");
+                } finally {
+                    session.finalizing = false;
+                }
+                session.updatedAt = LocalDateTime.now();
+                persist(session);
+                logger.info("📁 Upload session {} finalized as {}", id, session.path);
+            }
+            return toDto(session);
+        }
+    }
+
+    public void cancel(String username, String id) throws IOException {
+        UploadSession session = requireSession(id, ownerId(username));
+        remove(session);
+    }
+
+    /**
+     * Take over the content of a finalized upload; the caller now owns its blob reference.
+     */
+    String claim(String id, Long userId) throws IOException {
+        UploadSession session = requireSession(id, userId);
+        String path;
+        synchronized (session) {
+            if (session.removed) {
+                throw new UploadNotFoundException();
+            }
+            if (session.path == null) {
+                throw new UploadStateException("Upload not finalized", toDto(session));
+            }
+            path = session.path;
+            session.path = null;
+        }
+        remove(session);
+        return path;
+    }
+
+    @Scheduled(fixedDelayString = "${file.upload-session.sweep-interval:600000}")
+    public void expireAbandoned() {
+        Path directory = sessionsDirectory();
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+
+        LocalDateTime cutoff = LocalDateTime.now().minusNanos(ttlMillis * 1_000_000L);
+        int expired = 0;
+        try (DirectoryStream<Path> sessionDirectories = Files.newDirectoryStream(directory)) {
+            for (Path sessionDirectory : sessionDirectories) {
+                String id = sessionDirectory.getFileName().toString();
+                try {
+                    UploadSession session = load(id);
+                    if (session == null) {
+                        // never got a state file: a create cut off by a shutdown
+                        deleteDirectory(sessionDirectory);
+                        continue;
+                    }
+                    boolean abandoned;
+                    synchronized (session) {
+                        // claim it under the lock, so a chunk write or finalize that starts now is turned away
+                        abandoned = !session.removed && session.writers == 0 && !session.finalizing
+                                && session.updatedAt.isBefore(cutoff);
+                        session.removed |= abandoned;
+                    }
+                    if (abandoned) {
+                        remove(session);
+                        expired++;
+                    }
+                } catch (IOException | RuntimeException e) {
+                    logger.warn("📁 Upload session {} could not be expired - {}", id, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("📁 Upload sessions could not be swept - {}", e.getMessage());
+        }
+        if (expired > 0) {
+            logger.info("📁 Expired {} abandoned upload sessions", expired);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("loadedSessions", sessions.size());
+        stats.put("ttlMillis", ttlMillis);
+        return stats;
+    }
+
+    private UploadSession requireSession(String id, Long userId) {
+        UploadSession session = null;
+        try {
+            session = load(id);
+        } catch (IOException e) {
+            logger.warn("📁 Upload session {} could not be read - {}", id, e.getMessage());
+        }
+        if (session == null || !session.ownerId.equals(userId)) {
+            throw new UploadNotFoundException();
+        }
+        return session;
+    }
+
+    /**
+     * The session from memory, or from its directory after a restart; null if there is none.
+     */
+    private UploadSession load(String id) throws IOException {
+        if (id == null || !SESSION_ID.matcher(id).matches()) {
+            return null;
+        }
+        UploadSession session = sessions.get(id);
+        if (session != null) {
+            return session;
+        }
+
+        Path stateFile = sessionDirectory(id).resolve(STATE_FILE);
+        if (!Files.isRegularFile(stateFile)) {
+            return null;
+        }
+        Properties state = new Properties();
+        try (InputStream in = Files.newInputStream(stateFile)) {
+            state.load(in);
+        }
+        session = new UploadSession(id, Long.valueOf(state.getProperty("owner")), state.getProperty("filename"),
+                Long.parseLong(state.getProperty("size")), LocalDateTime.parse(state.getProperty("created")));
+        session.updatedAt = LocalDateTime.parse(state.getProperty("updated"));
+        session.path = state.getProperty("path");
+        String ranges = state.getProperty("ranges", "");
+        if (!ranges.isEmpty()) {
+            for (String range : ranges.split(",")) {
+                String[] bounds = range.split("-");
+                session.commit(Long.parseLong(bounds[0]), Long.parseLong(bounds[1]));
+            }
+        }
+        UploadSession existing = sessions.putIfAbsent(id, session);
+        return existing != null ? existing : session;
+    }
+
+    /**
+     * Write the session's state next to its data, replacing the previous state atomically. Callers hold the session.
+     */
+    private void persist(UploadSession session) throws IOException {
+        Properties state = new Properties();
+        state.setProperty("owner", session.ownerId.toString());
+        state.setProperty("filename", session.filename == null ? "" : session.filename);
+        state.setProperty("size", Long.toString(session.size));
+        state.setProperty("created", session.createdAt.toString());
+        state.setProperty("updated", session.updatedAt.toString());
+        state.setProperty("ranges", session.ranges.entrySet().stream()
+                .map(range -> range.getKey() + "-" + range.getValue())
+                .collect(Collectors.joining(",")));
+        if (session.path != null) {
+            state.setProperty("path", session.path);
+        }
+
+        Path directory = sessionDirectory(session.id);
+        Path temporary = directory.resolve(STATE_FILE + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temporary)) {
+            state.store(out, null);
+        }
+        Files.move(temporary, directory.resolve(STATE_FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void remove(UploadSession session) throws IOException {
+        String unclaimed;
+        synchronized (session) {
+            unclaimed = session.path;
+            session.path = null;
+            session.removed = true;
+        }
+        sessions.remove(session.id, session);
+        deleteDirectory(sessionDirectory(session.id));
+        if (unclaimed != null) {
+            fileStorageService.delete(unclaimed);
+        }
+    }
+
+    private Long ownerId(String username) {
+        return userRepository.findByUsername(username)
+                .map(User::getId)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+    }
+
+    private UploadSessionDto toDto(UploadSession session) {
+        return new UploadSessionDto(session.id, session.filename, session.size, session.committedOffset(),
+                session.committedBytes(), session.path != null, session.updatedAt.plusNanos(ttlMillis * 1_000_000L));
+    }
+
+    private Path sessionsDirectory() {
+        return Paths.get(uploadPath + SESSIONS_DIRECTORY + "/");
+    }
+
+    private Path sessionDirectory(String id) {
+        return sessionsDirectory().resolve(id);
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(directory);
+    }
+}
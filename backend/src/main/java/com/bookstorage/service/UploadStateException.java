@@ -0,0 +1,22 @@
+package com.bookstorage.service;
+
+import com.bookstorage.dto.UploadSessionDto;
+
+/**
+ * Thrown when an upload session is not in a state that allows the request, e.g. a chunk for an upload that is
+ * already finalized, or a finalize before every byte arrived. Carries the session so the client can see where
+ * to resume from.
+ */
+public class UploadStateException extends RuntimeException {
+
+    private final UploadSessionDto session;
+
+    public UploadStateException(String message, UploadSessionDto session) {
+        super(message);
+        this.session = session;
+    }
+
+    public UploadSessionDto getSession() {
+        return session;
+    }
+}
@@ -0,0 +1,18 @@
+package com.bookstorage.service;
+
+/**
+ * Thrown when an upload is larger than the configured limit; nothing of it is kept.
+ */
+public class UploadTooLargeException extends RuntimeException {
+
+    private final long maxBytes;
+
+    public UploadTooLargeException(long maxBytes) {
+        super("Upload exceeds the limit of " + maxBytes + " bytes");
+        this.maxBytes = maxBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+}
@@ -2,20 +2,28 @@ package com.bookstorage.service;
 
 import com.bookstorage.dto.AuthRequest;
 import com.bookstorage.dto.AuthResponse;
+import com.bookstorage.dto.CountMode;
 import com.bookstorage.dto.UserDto;
 import com.bookstorage.entity.User;
 import com.bookstorage.entity.UserRole;
 import com.bookstorage.entity.UserStatus;
+import com.bookstorage.repository.RowEstimateRepository;
 import com.bookstorage.repository.UserRepository;
 import com.bookstorage.security.JwtUtil;
+import com.bookstorage.security.TokenEpochRegistry;
+import com.bookstorage.security.UserDetailsCache;
+import com.bookstorage.util.ETagUtil;
+import com.bookstorage.util.PageUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -25,15 +33,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.OptionalLong;
 
 @Service
-public class UserService implements UserDetailsService {
+public class UserService implements UserDetailsService, UserDetailsPasswordService {
 
     private static final Logger logger = LoggerFactory.getLogger(UserService.class);
 
@@ -50,8 +55,26 @@ public class UserService implements UserDetailsService {
     @Lazy
     private AuthenticationManager authenticationManager;
 
-    @Value("${file.upload.path}")
-    private String uploadPath;
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+
+    @Autowired
+    private TokenEpochRegistry tokenEpochRegistry;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private RowEstimateRepository rowEstimateRepository;
+
+    @Autowired
+    private FirstPageCache firstPageCache;
+
+    @Autowired
+    private ListingVersions listingVersions;
+
+    @Autowired
+    private FileStorageService fileStorageService;
 
     @Value("${admin.default.email}")
     private String defaultAdminEmail;
@@ -64,6 +87,10 @@ public class UserService implements UserDetailsService {
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        return userDetailsCache.get(username, this::loadUserFromDatabase);
+    }
+
+    private UserDetails loadUserFromDatabase(String username) {
         logger.debug("Loading user by username: {}", username);
         
         User user = userRepository.findByUsername(username)
@@ -85,6 +112,25 @@ public class UserService implements UserDetailsService {
                 .build();
     }
 
+    /**
+     * Called by the authentication provider after a successful login when the stored hash
+     * was produced with a cost factor other than the one currently configured.
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        User user = userRepository.findByUsername(userDetails.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + userDetails.getUsername()));
+
+        user.setPassword(newPassword);
+        userRepository.save(user);
+        userDetailsCache.invalidate(user.getUsername());
+        logger.info("Password hash upgraded for user: {}", user.getUsername());
+
+        return org.springframework.security.core.userdetails.User.withUserDetails(userDetails)
+                .password(newPassword)
+                .build();
+    }
+
     public AuthResponse register(AuthRequest request) {
         logger.info("User registration attempt for username: {}", request.getUsername());
         
@@ -101,13 +147,15 @@ public class UserService implements UserDetailsService {
         user.setStatus(UserStatus.ACTIVE);
 
         User savedUser = userRepository.save(user);
-        String token = jwtUtil.generateToken(savedUser.getUsername());
+        String token = jwtUtil.generateToken(savedUser);
         
         logger.info("User registered successfully: {} with ID: {}", savedUser.getUsername(), savedUser.getId());
 
-        return new AuthResponse(token, savedUser.getId(), savedUser.getUsername(),
+        AuthResponse response = new AuthResponse(token, savedUser.getId(), savedUser.getUsername(),
                 savedUser.getFullName(), savedUser.getProfilePhoto(),
                 savedUser.getRole(), savedUser.getStatus());
+        response.setRefreshToken(refreshTokenService.issue(savedUser));
+        return response;
     }
 
     public AuthResponse login(AuthRequest request) {
@@ -134,12 +182,28 @@ public class UserService implements UserDetailsService {
             throw new RuntimeException("User is banned");
         }
 
-        String token = jwtUtil.generateToken(user.getUsername());
+        String token = jwtUtil.generateToken(user);
         logger.info("User logged in successfully: {} with role: {}", user.getUsername(), user.getRole());
 
-        return new AuthResponse(token, user.getId(), user.getUsername(),
+        AuthResponse response = new AuthResponse(token, user.getId(), user.getUsername(),
                 user.getFullName(), user.getProfilePhoto(),
                 user.getRole(), user.getStatus());
+        response.setRefreshToken(refreshTokenService.issue(user));
+        return response;
+    }
+
+    public AuthResponse refresh(String refreshToken) {
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(refreshToken);
+        User user = rotation.user();
+
+        String token = jwtUtil.generateToken(user);
+        logger.debug("Access token refreshed for user: {}", user.getUsername());
+
+        AuthResponse response = new AuthResponse(token, user.getId(), user.getUsername(),
+                user.getFullName(), user.getProfilePhoto(),
+                user.getRole(), user.getStatus());
+        response.setRefreshToken(rotation.refreshToken());
+        return response;
     }
 
     public UserDto getCurrentUser(String username) {
@@ -148,6 +212,15 @@ public class UserService implements UserDetailsService {
         return new UserDto(user);
     }
 
+    /**
+     * ETag of the profile; books count is maintained by bulk updates that leave updatedAt alone, so it is part of the tag.
+     */
+    public String getCurrentUserETag(String username) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        return ETagUtil.strong("u" + user.getId(), user.getUpdatedAt(), user.getBooksCount());
+    }
+
     public UserDto updateProfile(String username, String fullName, String newUsername) {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new RuntimeException("User not found"));
@@ -161,9 +234,17 @@ public class UserService implements UserDetailsService {
                 throw new RuntimeException("Username already exists");
             }
             user.setUsername(newUsername);
+            // Tokens carry the username as subject, so a rename revokes them
+            user.bumpTokenEpoch();
         }
 
         User savedUser = userRepository.save(user);
+        tokenEpochRegistry.update(savedUser.getId(), savedUser.getTokenEpoch());
+        userDetailsCache.invalidate(username);
+        userDetailsCache.invalidate(savedUser.getUsername());
+        // cached book pages carry the owner's full name
+        firstPageCache.invalidateOwner(savedUser.getId());
+        listingVersions.touchOwner(savedUser.getId());
         return new UserDto(savedUser);
     }
 
@@ -176,7 +257,11 @@ public class UserService implements UserDetailsService {
         }
 
         user.setPassword(passwordEncoder.encode(newPassword));
+        user.bumpTokenEpoch();
         User savedUser = userRepository.save(user);
+        tokenEpochRegistry.update(savedUser.getId(), savedUser.getTokenEpoch());
+        refreshTokenService.revokeAll(savedUser.getId());
+        userDetailsCache.invalidate(username);
         return new UserDto(savedUser);
     }
 
@@ -185,25 +270,14 @@ public class UserService implements UserDetailsService {
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
         try {
-            String fileName = "profile_" + UUID.randomUUID().toString() + "_" + file.getOriginalFilename();
-            Path uploadDir = Paths.get(uploadPath + "profiles/");
-            
-            if (!Files.exists(uploadDir)) {
-                Files.createDirectories(uploadDir);
-            }
-
-            Path filePath = uploadDir.resolve(fileName);
-            Files.copy(file.getInputStream(), filePath);
+            String photoPath = fileStorageService.store(file);
 
             // Delete old profile photo if exists
             if (user.getProfilePhoto() != null) {
-                Path oldPhotoPath = Paths.get(uploadPath + user.getProfilePhoto());
-                if (Files.exists(oldPhotoPath)) {
-                    Files.delete(oldPhotoPath);
-                }
+                fileStorageService.delete(user.getProfilePhoto());
             }
 
-            user.setProfilePhoto("profiles/" + fileName);
+            user.setProfilePhoto(photoPath);
             User savedUser = userRepository.save(user);
             return new UserDto(savedUser);
 
@@ -219,6 +293,22 @@ public class UserService implements UserDetailsService {
         return users.map(UserDto::new);
     }
 
+    public Slice<UserDto> getAllUsers(String fullName, String username, UserRole role,
+                                      UserStatus status, Pageable pageable, CountMode countMode) {
+        if (countMode == CountMode.EXACT) {
+            return getAllUsers(fullName, username, role, status, pageable);
+        }
+
+        Slice<UserDto> users = userRepository.findSliceByFilters(fullName, username, role, status, pageable)
+                .map(UserDto::new);
+        if (countMode == CountMode.NONE) {
+            return users;
+        }
+        OptionalLong estimate = rowEstimateRepository.estimateUsers(fullName, username, role, status);
+        return estimate.isPresent() ? PageUtil.withEstimatedTotal(users, estimate.getAsLong())
+                : getAllUsers(fullName, username, role, status, pageable);
+    }
+
     public UserDto getUserById(Long userId) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
@@ -238,6 +328,7 @@ public class UserService implements UserDetailsService {
         user.setStatus(UserStatus.ACTIVE);
 
         User savedUser = userRepository.save(user);
+        userDetailsCache.invalidate(savedUser.getUsername());
         return new UserDto(savedUser);
     }
 
@@ -245,11 +336,29 @@ public class UserService implements UserDetailsService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
         
+        if (status == UserStatus.BANNED && user.isActive()) {
+            user.bumpTokenEpoch();
+        }
         user.setStatus(status);
         User savedUser = userRepository.save(user);
+        tokenEpochRegistry.update(savedUser.getId(), savedUser.getTokenEpoch());
+        if (status == UserStatus.BANNED) {
+            refreshTokenService.revokeAll(savedUser.getId());
+        }
+        userDetailsCache.invalidate(savedUser.getUsername());
         return new UserDto(savedUser);
     }
 
+    /**
+     * Bring every users.books_count back in line with the books table, e.g. after the column was added.
+     */
+    public void reconcileBooksCounts() {
+        int updated = userRepository.reconcileBooksCounts();
+        if (updated > 0) {
+            logger.info("Reconciled books count for {} users", updated);
+        }
+    }
+
     public void initializeDefaultAdmin() {
         if (!userRepository.existsByUsername(defaultAdminEmail)) {
             User admin = new User();
@@ -0,0 +1,23 @@
+package com.bookstorage.util;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.StringJoiner;
+
+public class ETagUtil {
+
+    /**
+     * Build a strong ETag from the values that determine a representation, e.g. an id and its last modification time
+     */
+    public static String strong(Object... parts) {
+        StringJoiner tag = new StringJoiner("-", "\"", "\"");
+        for (Object part : parts) {
+            tag.add(part instanceof LocalDateTime time ? stamp(time) : String.valueOf(part));
+        }
+        return tag.toString();
+    }
+
+    private static String stamp(LocalDateTime time) {
+        return Long.toString(time.toEpochSecond(ZoneOffset.UTC), 36) + "." + Integer.toString(time.getNano(), 36);
+    }
+}
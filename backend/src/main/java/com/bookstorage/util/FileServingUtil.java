@@ -0,0 +1,272 @@
+package com.bookstorage.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes a file to the response with conditional GET and byte-range (206) support.
+ * A single region is handed to Tomcat's sendfile when the connector offers it, so its bytes never enter
+ * the JVM. Anything else (multipart ranges, connectors without sendfile) is copied: the servlet stream is
+ * not a channel, so the file is read in pieces into one heap buffer per response and written from there.
+ * The allocation is fixed per response and does not grow with the file. Files already held in memory are
+ * written from their buffer, which the stream copies the same way.
+ */
+public class FileServingUtil {
+
+    // Tomcat's sendfile contract (see org.apache.catalina.Globals)
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final String CRLF = "\r\n";
+
+    private static final int COPY_BUFFER_SIZE = 16 * 1024;
+
+    public static void serve(Path file, String contentType, String filename,
+                             HttpServletRequest request, HttpServletResponse response) throws IOException {
+        serve(file, contentType, filename, null, null, request, response);
+    }
+
+    /**
+     * Serve with a caller-supplied strong ETag (null for one derived from size and mtime) and Cache-Control (null for none).
+     */
+    public static void serve(Path file, String contentType, String filename, String etag, CacheControl cacheControl,
+                             HttpServletRequest request, HttpServletResponse response) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        serve(file, attributes.size(), attributes.lastModifiedTime().toMillis(), contentType, filename, etag, cacheControl,
+                request, response);
+    }
+
+    /**
+     * Serve with size and mtime the caller already knows, so the file is not stat'ed again.
+     */
+    public static void serve(Path file, long length, long lastModified, String contentType, String filename, String etag,
+                             CacheControl cacheControl, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        serve(file, null, length, lastModified, contentType, filename, etag, cacheControl, request, response);
+    }
+
+    /**
+     * Serve the whole content of an in-memory copy of a file.
+     */
+    public static void serve(ByteBuffer content, long lastModified, String contentType, String filename, String etag,
+                             CacheControl cacheControl, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        serve(null, content, content.remaining(), lastModified, contentType, filename, etag, cacheControl, request, response);
+    }
+
+    private static void serve(Path file, ByteBuffer content, long length, long lastModified, String contentType, String filename,
+                              String etag, CacheControl cacheControl, HttpServletRequest request,
+                              HttpServletResponse response) throws IOException {
+        if (etag == null) {
+            etag = ETagUtil.strong(Long.toString(length, 36), Long.toString(lastModified, 36));
+        }
+        if (cacheControl != null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+        }
+
+        // sets ETag and Last-Modified, and answers 304 / 412 on its own
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, inlineDisposition(filename));
+        boolean head = "HEAD".equals(request.getMethod());
+
+        List<long[]> regions = requestedRegions(request, etag, lastModified, length);
+        if (regions == null) {
+            response.setContentType(contentType);
+            response.setContentLengthLong(length);
+            if (!head) {
+                sendRegion(file, content, 0, length, request, response);
+            }
+        } else if (regions.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+        } else if (regions.size() == 1) {
+            long start = regions.get(0)[0];
+            long end = regions.get(0)[1];
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setContentType(contentType);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, contentRange(start, end, length));
+            response.setContentLengthLong(end - start + 1);
+            if (!head) {
+                sendRegion(file, content, start, end - start + 1, request, response);
+            }
+        } else {
+            sendMultipart(file, content, contentType, regions, length, head, response);
+        }
+    }
+
+    /**
+     * The satisfiable byte ranges as inclusive [start, end] pairs; null to send the whole file
+     * (no Range, an If-Range that no longer matches, or a header not worth honouring), empty for 416.
+     */
+    private static List<long[]> requestedRegions(HttpServletRequest request, String etag, long lastModified, long length) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null || !ifRangeMatches(request, etag, lastModified)) {
+            return null;
+        }
+
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            // malformed or too many ranges: ignore the header as RFC 9110 allows
+            return null;
+        }
+
+        List<long[]> regions = new ArrayList<>();
+        long total = 0;
+        for (HttpRange range : ranges) {
+            long start;
+            long end;
+            try {
+                start = range.getRangeStart(length);
+                end = range.getRangeEnd(length);
+            } catch (IllegalArgumentException e) {
+                continue;
+            }
+            if (start >= length || start > end) {
+                continue;
+            }
+            regions.add(new long[]{start, end});
+            total += end - start + 1;
+        }
+        // overlapping ranges asking for more than the file itself are answered with the file
+        return total > length && regions.size() > 1 ? null : regions;
+    }
+
+    private static boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) == lastModified / 1000 * 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static void sendMultipart(Path file, ByteBuffer content, String contentType, List<long[]> regions, long length,
+                                      boolean head, HttpServletResponse response) throws IOException {
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        List<byte[]> partHeaders = new ArrayList<>(regions.size());
+        long contentLength = 0;
+        for (long[] region : regions) {
+            byte[] partHeader = (CRLF + "--" + boundary + CRLF
+                    + HttpHeaders.CONTENT_TYPE + ": " + contentType + CRLF
+                    + HttpHeaders.CONTENT_RANGE + ": " + contentRange(region[0], region[1], length) + CRLF
+                    + CRLF).getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(partHeader);
+            contentLength += partHeader.length + region[1] - region[0] + 1;
+        }
+        byte[] closing = (CRLF + "--" + boundary + "--" + CRLF).getBytes(StandardCharsets.US_ASCII);
+        contentLength += closing.length;
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+        if (head) {
+            return;
+        }
+
+        OutputStream out = response.getOutputStream();
+        WritableByteChannel target = Channels.newChannel(out);
+        ByteBuffer buffer = content == null ? ByteBuffer.allocate(COPY_BUFFER_SIZE) : null;
+        try (FileChannel channel = content == null ? FileChannel.open(file, StandardOpenOption.READ) : null) {
+            for (int i = 0; i < regions.size(); i++) {
+                out.write(partHeaders.get(i));
+                long[] region = regions.get(i);
+                if (content == null) {
+                    copy(channel, region[0], region[1] - region[0] + 1, buffer, out);
+                } else {
+                    write(content, region[0], region[1] - region[0] + 1, target);
+                }
+            }
+        }
+        out.write(closing);
+    }
+
+    private static void sendRegion(Path file, ByteBuffer content, long start, long count, HttpServletRequest request,
+                                   HttpServletResponse response) throws IOException {
+        if (content != null) {
+            write(content, start, count, Channels.newChannel(response.getOutputStream()));
+            return;
+        }
+        if (count > 0 && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            // Tomcat writes the region with sendfile(2) once the handler returns
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            copy(channel, start, count, ByteBuffer.allocate((int) Math.min(count, COPY_BUFFER_SIZE)), response.getOutputStream());
+        }
+    }
+
+    /**
+     * Read the region straight into the heap buffer and write it from there. FileChannel.transferTo into a
+     * stream adapter would stage every piece in a direct buffer first, one copy more for nothing.
+     */
+    private static void copy(FileChannel channel, long position, long count, ByteBuffer buffer, OutputStream out) throws IOException {
+        long sent = 0;
+        while (sent < count) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), count - sent));
+            int read = channel.read(buffer, position + sent);
+            if (read <= 0) {
+                throw new IOException("File truncated while being sent");
+            }
+            out.write(buffer.array(), 0, read);
+            sent += read;
+        }
+    }
+
+    private static void write(ByteBuffer content, long position, long count, WritableByteChannel target) throws IOException {
+        // a view per write, so concurrent requests never share a buffer position
+        ByteBuffer region = content.duplicate();
+        region.position(region.position() + (int) position);
+        region.limit(region.position() + (int) count);
+        while (region.hasRemaining()) {
+            target.write(region);
+        }
+    }
+
+    private static String inlineDisposition(String filename) {
+        ContentDisposition.Builder disposition = ContentDisposition.inline();
+        // only non-ASCII names need the RFC 5987 encoded form
+        return (StandardCharsets.US_ASCII.newEncoder().canEncode(filename)
+                ? disposition.filename(filename)
+                : disposition.filename(filename, StandardCharsets.UTF_8)).build().toString();
+    }
+
+    private static String contentRange(long start, long end, long length) {
+        return "bytes " + start + "-" + end + "/" + length;
+    }
+}
@@ -0,0 +1,16 @@
+package com.bookstorage.util;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Slice;
+
+public class PageUtil {
+
+    /**
+     * Wrap a slice as a page whose total is an estimate; never reports fewer rows than the slice proves exist
+     */
+    public static <T> Page<T> withEstimatedTotal(Slice<T> slice, long estimate) {
+        long seen = slice.getPageable().getOffset() + slice.getNumberOfElements() + (slice.hasNext() ? 1 : 0);
+        return new PageImpl<>(slice.getContent(), slice.getPageable(), Math.max(estimate, seen));
+    }
+}
@@ -0,0 +1,23 @@
+package com.bookstorage.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+public class RequestUtil {
+
+    /**
+     * Resolve the client IP, honouring X-Forwarded-For and X-Real-IP set by a reverse proxy
+     */
+    public static String getClientIpAddress(HttpServletRequest request) {
+        String xForwardedFor = request.getHeader("X-Forwarded-For");
+        if (xForwardedFor != null && !xForwardedFor.isEmpty() && !"unknown".equalsIgnoreCase(xForwardedFor)) {
+            return xForwardedFor.split(",")[0];
+        }
+        
+        String xRealIp = request.getHeader("X-Real-IP");
+        if (xRealIp != null && !xRealIp.isEmpty() && !"unknown".equalsIgnoreCase(xRealIp)) {
+            return xRealIp;
+        }
+        
+        return request.getRemoteAddr();
+    }
+}
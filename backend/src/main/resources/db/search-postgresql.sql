@@ -0,0 +1,20 @@
+-- Full-text and trigram search support for PostgreSQL.
+-- Applied at startup after Hibernate has updated the schema; every statement is idempotent.
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- Weighted document for ranked word search, maintained by PostgreSQL on every insert/update
+ALTER TABLE books ADD COLUMN IF NOT EXISTS search_vector tsvector
+    GENERATED ALWAYS AS (
+        setweight(to_tsvector('simple'::regconfig, coalesce(title, '')), 'A') ||
+        setweight(to_tsvector('simple'::regconfig, coalesce(author, '')), 'B') ||
+        setweight(to_tsvector('simple'::regconfig, coalesce(description, '')), 'C')
+    ) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_books_search_vector ON books USING gin (search_vector);
+
+-- Trigram indexes serve the LOWER(col) LIKE '%term%' substring filters
+CREATE INDEX IF NOT EXISTS idx_books_title_trgm ON books USING gin (lower(title) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_books_author_trgm ON books USING gin (lower(author) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_users_full_name_trgm ON users USING gin (lower(full_name) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_users_username_trgm ON users USING gin (lower(username) gin_trgm_ops);
@@ -0,0 +1,99 @@
+package com.bookstorage.repository;
+
+import com.bookstorage.config.EntityCacheConfig;
+import com.bookstorage.dto.BookDto;
+import com.bookstorage.entity.Book;
+import com.bookstorage.entity.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Book lookups by id, and the rest of what BookService.getBookById reads (the caller by username and
+ * the book's lazy owner), are served from the second-level cache once it is warm.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import(EntityCacheConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BookRepositoryCacheTest {
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Statistics statistics;
+
+    private User owner;
+    private Book book;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        owner = userRepository.save(new User("Carol Reader", "carol@gmail.com", "password"));
+        book = bookRepository.save(new Book("Dune", "Frank Herbert", "Desert planet", owner));
+    }
+
+    @AfterEach
+    void tearDown() {
+        bookRepository.deleteAll();
+        userRepository.deleteAll();
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    void repeatedFindByIdRunsNoSql() {
+        bookRepository.findById(book.getId()).orElseThrow();
+        statistics.clear();
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(bookRepository.findById(book.getId())).get()
+                    .extracting(Book::getTitle).isEqualTo("Dune");
+        }
+
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(statistics.getSecondLevelCacheHitCount()).isPositive();
+    }
+
+    @Test
+    void repeatedBookByIdReadsRunNoSql() {
+        TransactionTemplate request = new TransactionTemplate(transactionManager);
+        request.setReadOnly(true);
+        request.execute(status -> readBook());
+        statistics.clear();
+
+        for (int i = 0; i < 5; i++) {
+            BookDto dto = request.execute(status -> readBook());
+            assertThat(dto.getOwnerName()).isEqualTo("Carol Reader");
+        }
+
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    // the reads of BookService.getBookById, in one session like a request
+    private BookDto readBook() {
+        Book found = bookRepository.findById(book.getId()).orElseThrow();
+        User caller = userRepository.findByUsername("carol@gmail.com").orElseThrow();
+        assertThat(found.isOwnedBy(caller)).isTrue();
+        return new BookDto(found);
+    }
+}
@@ -0,0 +1,83 @@
+package com.bookstorage.repository;
+
+import com.bookstorage.config.EntityCacheConfig;
+import com.bookstorage.entity.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * User lookups by id and by username are served from the second-level cache. Every repository call runs
+ * in its own session, so the first-level cache cannot answer for it.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import(EntityCacheConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserRepositoryCacheTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    private User alice;
+    private User bob;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        alice = userRepository.save(new User("Alice Reader", "alice@gmail.com", "password"));
+        bob = userRepository.save(new User("Bob Reader", "bob@gmail.com", "password"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    void repeatedLookupsRunNoSql() {
+        userRepository.findByUsername("alice@gmail.com").orElseThrow();
+        userRepository.findById(alice.getId()).orElseThrow();
+        statistics.clear();
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(userRepository.findByUsername("alice@gmail.com")).get()
+                    .extracting(User::getId).isEqualTo(alice.getId());
+            assertThat(userRepository.findById(alice.getId())).isPresent();
+        }
+
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(statistics.getSecondLevelCacheHitCount()).isPositive();
+    }
+
+    @Test
+    void adjustingBooksCountEvictsOnlyTheOwner() {
+        userRepository.findByUsername("alice@gmail.com").orElseThrow();
+        userRepository.findByUsername("bob@gmail.com").orElseThrow();
+
+        userRepository.adjustBooksCount(alice, 1);
+        statistics.clear();
+
+        userRepository.findByUsername("bob@gmail.com").orElseThrow();
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+
+        assertThat(userRepository.findByUsername("alice@gmail.com")).get()
+                .extracting(User::getBooksCount).isEqualTo(1);
+        assertThat(statistics.getPrepareStatementCount()).isPositive();
+    }
+}
@@ -14,6 +14,7 @@ const Home = () => {
   const [selectedBook, setSelectedBook] = useState(null);
   const [showModal, setShowModal] = useState(false);
   const [error, setError] = useState('');
+  const [suggestions, setSuggestions] = useState([]);
 
   const fetchBooks = async (page = 0, search = '') => {
     try {
@@ -41,6 +42,22 @@ const Home = () => {
     fetchBooks();
   }, []);
 
+  useEffect(() => {
+    if (!searchTerm.trim()) {
+      setSuggestions([]);
+      return;
+    }
+    const timer = setTimeout(async () => {
+      try {
+        const response = await bookAPI.suggest(searchTerm);
+        setSuggestions(response.data);
+      } catch (error) {
+        setSuggestions([]);
+      }
+    }, 150);
+    return () => clearTimeout(timer);
+  }, [searchTerm]);
+
   const handleSearch = (e) => {
     e.preventDefault();
     fetchBooks(0, searchTerm);
@@ -108,7 +125,13 @@ const Home = () => {
               onChange={(e) => setSearchTerm(e.target.value)}
               placeholder="Search books by title or author..."
               className="input-field"
+              list="book-suggestions"
             />
+            <datalist id="book-suggestions">
+              {suggestions.map((suggestion) => (
+                <option key={`${suggestion.type}:${suggestion.text}`} value={suggestion.text} />
+              ))}
+            </datalist>
           </div>
           <button type="submit" className="btn-primary">
             Search
@@ -50,11 +50,12 @@ export const AuthProvider = ({ children }) => {
         password
       });
 
-      const { token: newToken, ...userData } = response.data;
+      const { token: newToken, refreshToken, ...userData } = response.data;
       
       setToken(newToken);
       setUser(userData);
       localStorage.setItem('token', newToken);
+      localStorage.setItem('refreshToken', refreshToken);
       
       return { success: true };
     } catch (error) {
@@ -74,11 +75,12 @@ export const AuthProvider = ({ children }) => {
         password
       });
 
-      const { token: newToken, ...userData } = response.data;
+      const { token: newToken, refreshToken, ...userData } = response.data;
       
       setToken(newToken);
       setUser(userData);
       localStorage.setItem('token', newToken);
+      localStorage.setItem('refreshToken', refreshToken);
       
       return { success: true };
     } catch (error) {
@@ -94,6 +96,7 @@ export const AuthProvider = ({ children }) => {
     setUser(null);
     setToken(null);
     localStorage.removeItem('token');
+    localStorage.removeItem('refreshToken');
     delete axios.defaults.headers.common['Authorization'];
   };
 
@@ -25,10 +25,46 @@ api.interceptors.request.use(
 );
 
 // Response interceptor for error handling
+let refreshPromise = null;
+
+const refreshAccessToken = () => {
+  if (!refreshPromise) {
+    const refreshToken = localStorage.getItem('refreshToken');
+    refreshPromise = axios
+      .post(`${API_BASE_URL}/auth/refresh`, { refreshToken })
+      .then((response) => {
+        localStorage.setItem('token', response.data.token);
+        localStorage.setItem('refreshToken', response.data.refreshToken);
+        return response.data.token;
+      })
+      .finally(() => {
+        refreshPromise = null;
+      });
+  }
+  return refreshPromise;
+};
+
 api.interceptors.response.use(
   (response) => response,
-  (error) => {
-    if (error.response?.status === 401) {
+  async (error) => {
+    const originalRequest = error.config;
+    const status = error.response?.status;
+
+    // Missing or expired access token (403 is access denied and left to the caller):
+    // rotate the refresh token once and replay the request
+    if (status === 401 && originalRequest && !originalRequest._retry
+        && localStorage.getItem('refreshToken')) {
+      originalRequest._retry = true;
+      try {
+        const token = await refreshAccessToken();
+        originalRequest.headers.Authorization = `Bearer ${token}`;
+        return api(originalRequest);
+      } catch (refreshError) {
+        localStorage.removeItem('refreshToken');
+      }
+    }
+
+    if (status === 401) {
       localStorage.removeItem('token');
       window.location.href = '/login';
     }
@@ -40,6 +76,7 @@ api.interceptors.response.use(
 export const authAPI = {
   login: (credentials) => api.post('/auth/login', credentials),
   register: (userData) => api.post('/auth/register', userData),
+  refresh: (refreshToken) => api.post('/auth/refresh', { refreshToken }),
 };
 
 // User API
@@ -59,6 +96,7 @@ export const userAPI = {
 // Book API
 export const bookAPI = {
   getUserBooks: (params = {}) => api.get('/books', { params }),
+  suggest: (q, limit = 8) => api.get('/books/suggest', { params: { q, limit } }),
   getBookById: (id) => api.get(`/books/${id}`),
   createBook: (data) => {
     const formData = new FormData();
@@ -94,9 +132,30 @@ export const bookAPI = {
       headers: { 'Content-Type': 'multipart/form-data' },
     });
   },
+  // Raw-body uploads, streamed to storage without multipart buffering
+  uploadCover: (id, file) => api.put(`/books/${id}/cover`, file, {
+    params: { filename: file.name },
+    headers: { 'Content-Type': 'application/octet-stream' },
+  }),
+  uploadBookFile: (id, file) => api.put(`/books/${id}/file`, file, {
+    params: { filename: file.name },
+    headers: { 'Content-Type': 'application/octet-stream' },
+  }),
   deleteBook: (id) => api.delete(`/books/${id}`),
 };
 
+// Resumable uploads: create, PUT chunks at offsets, finalize, then pass the id as bookFileUploadId / coverUploadId
+export const uploadAPI = {
+  create: (filename, size) => api.post('/uploads', null, { params: { filename, size } }),
+  getProgress: (id) => api.get(`/uploads/${id}`),
+  putChunk: (id, offset, chunk) => api.put(`/uploads/${id}`, chunk, {
+    params: { offset },
+    headers: { 'Content-Type': 'application/octet-stream' },
+  }),
+  finalize: (id) => api.post(`/uploads/${id}/finalize`),
+  cancel: (id) => api.delete(`/uploads/${id}`),
+};
+
 // Admin API
 export const adminAPI = {
   getAllUsers: (params = {}) => api.get('/admin/users', { params }),